@@ -0,0 +1,157 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Runs searches without the GUI: reads one query per line (see {@link QueryFormat}) and writes every
+ * match as a line of CSV or JSON. Queries are read and results written one at a time through buffers,
+ * so any number of queries can be run in memory that depends only on the size of the menu.
+ */
+public class BatchSearcher {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private final Menu menu;
+    private final boolean json;
+
+    /**
+     * Creates a batch searcher over a menu.
+     *
+     * @param menu the menu to search.
+     * @param json true to write JSON lines, false to write CSV.
+     */
+    public BatchSearcher(Menu menu, boolean json) {
+        this.menu = menu;
+        this.json = json;
+    }
+
+    /**
+     * Runs from the command line: {@code --batch [queries|-] [--menu=path] [--format=csv|json] [--output=path]}.
+     * Queries are read from standard input when no file (or "-") is given, and results written to
+     * standard output when no output file is given. Exits with status 1 if the menu can't be loaded,
+     * the queries can't be read or the results written.
+     *
+     * @param args the command-line arguments, after "--batch".
+     * @param defaultMenu the menu file to use when none is given.
+     */
+    public static void main(String[] args, String defaultMenu) {
+        String menuPath = defaultMenu;
+        String queryPath = "-";
+        String outputPath = null;
+        boolean json = false;
+        for (String arg : args) {
+            if (arg.startsWith("--menu=")) menuPath = arg.substring("--menu=".length());
+            else if (arg.startsWith("--output=")) outputPath = arg.substring("--output=".length());
+            else if (arg.startsWith("--format=")) json = arg.substring("--format=".length()).equalsIgnoreCase("json");
+            else queryPath = arg;
+        }
+        Menu menu;
+        try {
+            menu = MenuSearcher.loadMenu(menuPath);
+        } catch (UncheckedIOException | IllegalArgumentException e) {
+            System.out.println("Menu could not be loaded. \nError message: " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+        try (Reader queries = queryPath.equals("-") ? new InputStreamReader(System.in, StandardCharsets.UTF_8)
+                : Files.newBufferedReader(Path.of(queryPath));
+             Writer output = outputPath == null ? new OutputStreamWriter(System.out, StandardCharsets.UTF_8)
+                : Files.newBufferedWriter(Path.of(outputPath))) {
+            new BatchSearcher(menu, json).run(queries, output);
+        } catch (IOException io) {
+            System.out.println("Batch search failed. \nError message: " + io.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Runs every query read from the input, writing the matches of each in turn. Blank lines and lines
+     * starting with # are skipped; a line that can't be parsed is reported on standard error and
+     * skipped.
+     *
+     * @param queries the query lines.
+     * @param output receives a line per match, tagged with the line number of its query.
+     * @return the number of queries run.
+     * @throws IOException if reading the queries or writing the output fails.
+     */
+    public int run(Reader queries, Writer output) throws IOException {
+        BufferedReader reader = new BufferedReader(queries, BUFFER_SIZE);
+        BufferedWriter writer = new BufferedWriter(output, BUFFER_SIZE);
+        if (!json) writer.write("query,id,name,price\n");
+        // The same decimal point whatever the machine's locale, so the output can be read back
+        DecimalFormat df = new DecimalFormat("0.00", DecimalFormatSymbols.getInstance(Locale.ROOT));
+        int run = 0;
+        int lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank() || line.strip().startsWith("#")) continue;
+            List<MenuItem> matching;
+            try {
+                DreamMenuItem dreamMenuItem = QueryFormat.parse(line);
+                int limit = QueryFormat.parseLimit(line);
+                String text = QueryFormat.parseText(line);
+                if (text != null) {
+                    matching = menu.findMatch(dreamMenuItem, text);
+                    if (limit >= 0 && matching.size() > limit) matching = matching.subList(0, limit);
+                } else {
+                    matching = limit < 0 ? menu.findMatch(dreamMenuItem) : menu.findMatch(dreamMenuItem, 0, limit);
+                }
+            } catch (IllegalArgumentException e) {
+                System.err.println("Skipped query on line " + lineNumber + ": " + e.getMessage());
+                continue;
+            }
+            for (MenuItem menuItem : matching) {
+                if (json) {
+                    writer.write("{\"query\":" + lineNumber + ",\"id\":" + menuItem.getMenuItemIdentifier()
+                            + ",\"name\":" + jsonString(menuItem.getMenuItemName()) + ",\"price\":" + df.format(menuItem.getPrice()) + "}\n");
+                } else {
+                    writer.write(lineNumber + "," + menuItem.getMenuItemIdentifier() + ","
+                            + csvField(menuItem.getMenuItemName()) + "," + df.format(menuItem.getPrice()) + "\n");
+                }
+            }
+            run++;
+        }
+        writer.flush();
+        return run;
+    }
+
+    /**
+     * Quotes a CSV field if it contains a comma, quote or line break.
+     *
+     * @param value the field.
+     * @return the field as written to CSV.
+     */
+    private static String csvField(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) return value;
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    /**
+     * Writes a string as a JSON string literal.
+     *
+     * @param value the string.
+     * @return the quoted, escaped string.
+     */
+    private static String jsonString(String value) {
+        StringBuilder quoted = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> quoted.append("\\\"");
+                case '\\' -> quoted.append("\\\\");
+                case '\n' -> quoted.append("\\n");
+                case '\r' -> quoted.append("\\r");
+                case '\t' -> quoted.append("\\t");
+                default -> {
+                    if (c < 0x20) quoted.append(String.format("\\u%04x", (int) c));
+                    else quoted.append(c);
+                }
+            }
+        }
+        return quoted.append('"').toString();
+    }
+}
@@ -0,0 +1,97 @@
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Estimates how often each of an unbounded number of keys has been seen, in fixed memory. Each key is
+ * counted in one cell of every row, chosen by a different hash per row; the estimate is the smallest
+ * of those cells. Estimates are never too low, and too high by at most about {@code e/width} of the
+ * total count with probability {@code 1 - e^-depth}.
+ */
+public class CountMinSketch {
+    private final long[][] counts;
+    private final int width;
+    private long total;
+
+    /**
+     * Creates an empty sketch.
+     *
+     * @param width the number of cells per row; larger is more accurate.
+     * @param depth the number of rows; larger is more likely to be accurate.
+     */
+    public CountMinSketch(int width, int depth) {
+        if (width <= 0 || depth <= 0) throw new IllegalArgumentException("Width and depth must be positive");
+        this.width = width;
+        this.counts = new long[depth][width];
+    }
+
+    /**
+     * Counts occurrences of a key.
+     *
+     * @param key the key.
+     * @param count the number of occurrences.
+     * @return the new estimate for the key.
+     */
+    public long add(String key, long count) {
+        long hash = hash(key);
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < counts.length; row++) {
+            int cell = cell(hash, row);
+            counts[row][cell] += count;
+            estimate = Math.min(estimate, counts[row][cell]);
+        }
+        total += count;
+        return estimate;
+    }
+
+    /**
+     * Estimates the number of occurrences of a key.
+     *
+     * @param key the key.
+     * @return the estimate, which is never less than the true count.
+     */
+    public long estimate(String key) {
+        long hash = hash(key);
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < counts.length; row++) estimate = Math.min(estimate, counts[row][cell(hash, row)]);
+        return estimate;
+    }
+
+    /**
+     * Gets the total number of occurrences of all keys.
+     *
+     * @return the total count.
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * Chooses the cell of a row for a hash, combining two halves of the hash as in Kirsch and
+     * Mitzenmacher's double hashing, so one 64-bit hash serves every row.
+     *
+     * @param hash the hash of the key.
+     * @param row the row.
+     * @return the cell.
+     */
+    private int cell(long hash, int row) {
+        int combined = (int) hash + row * (int) (hash >>> 32);
+        return Math.floorMod(combined, width);
+    }
+
+    /**
+     * Hashes a key to 64 bits with FNV-1a followed by a final mix.
+     *
+     * @param key the key.
+     * @return the hash.
+     */
+    private static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,239 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.lang.ref.Cleaner;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the names and descriptions of menu items in a file instead of on the heap, for menus whose
+ * text would otherwise take up most of the memory. Items stored here hold only the offset of their
+ * text (see {@link #store(MenuItem)}), which is read back through memory-mapped segments of the file
+ * when it is displayed. The texts read most recently are kept decoded in a small cache. It is safe to
+ * use from several threads.
+ */
+public class DescriptionStore implements Closeable {
+    private static final int SEGMENT_SIZE = 1 << 24;
+    private static final int DEFAULT_CACHE_SIZE = 256;
+    private static final Cleaner CLEANER = Cleaner.create();
+    private final FileChannel channel;
+    private final Cleaner.Cleanable cleanable;
+    private final List<ByteBuffer> segments = new ArrayList<>();
+    private final Map<Long, String[]> cache;
+
+    /**
+     * Creates a store in a file, with a cache of 256 texts.
+     *
+     * @param file the file, whose existing contents are discarded.
+     * @throws UncheckedIOException if the file can't be opened.
+     */
+    public DescriptionStore(Path file) {
+        this(file, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Creates a store in a file.
+     *
+     * @param file the file, whose existing contents are discarded.
+     * @param cacheSize the number of texts to keep decoded.
+     * @throws UncheckedIOException if the file can't be opened.
+     */
+    public DescriptionStore(Path file, int cacheSize) {
+        this(file, cacheSize, false);
+    }
+
+    private DescriptionStore(Path file, int cacheSize, boolean temporary) {
+        cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, String[]> eldest) {
+                return size() > cacheSize;
+            }
+        };
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+        } catch (IOException io) {
+            throw new UncheckedIOException(io);
+        }
+        cleanable = CLEANER.register(this, new Release(channel, temporary ? file : null));
+    }
+
+    /**
+     * Creates a store in a new temporary file, with a cache of 256 texts. The file is deleted when the
+     * store is closed, or when it is no longer used by anything (nor any item stored in it), or at the
+     * latest when the program exits, so several stores never share a file.
+     *
+     * @param directory the directory for the file, or null for the system's temporary directory.
+     * @return the store.
+     * @throws UncheckedIOException if the file can't be created.
+     */
+    public static DescriptionStore createTemporary(Path directory) {
+        try {
+            Path file = directory == null ? Files.createTempFile("menu", ".descriptions")
+                    : Files.createTempFile(directory, "menu", ".descriptions");
+            file.toFile().deleteOnExit();
+            return new DescriptionStore(file, DEFAULT_CACHE_SIZE, true);
+        } catch (IOException io) {
+            throw new UncheckedIOException(io);
+        }
+    }
+
+    /**
+     * Moves an item's name and description into the store.
+     *
+     * @param menuItem the item.
+     * @return an equal item that reads its name and description from the store.
+     * @throws UncheckedIOException if the file can't be grown.
+     */
+    public MenuItem store(MenuItem menuItem) {
+        long offset = add(menuItem.getMenuItemName(), menuItem.getDescription());
+        return new MenuItem(menuItem.getMenuItemIdentifier(), menuItem.getPrice(), this, offset, menuItem.getDreamMenuItem());
+    }
+
+    /**
+     * Appends a name and description to the file.
+     *
+     * @param name the name.
+     * @param description the description.
+     * @return the offset of the text.
+     * @throws UncheckedIOException if the file can't be grown.
+     */
+    public synchronized long add(String name, String description) {
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        byte[] descriptionBytes = description.getBytes(StandardCharsets.UTF_8);
+        int length = 2 * Integer.BYTES + nameBytes.length + descriptionBytes.length;
+        if (length > SEGMENT_SIZE) throw new IllegalArgumentException("Description too long for item " + name);
+        ByteBuffer segment = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+        if (segment == null || segment.remaining() < length) {
+            // Texts never straddle two segments, so each is read from a single mapping
+            try {
+                segment = channel.map(FileChannel.MapMode.READ_WRITE, (long) segments.size() * SEGMENT_SIZE, SEGMENT_SIZE);
+            } catch (IOException io) {
+                throw new UncheckedIOException(io);
+            }
+            segments.add(segment);
+        }
+        long offset = (long) (segments.size() - 1) * SEGMENT_SIZE + segment.position();
+        segment.putInt(nameBytes.length).put(nameBytes).putInt(descriptionBytes.length).put(descriptionBytes);
+        return offset;
+    }
+
+    /**
+     * Gets the name stored at an offset.
+     *
+     * @param offset the offset of the text.
+     * @return the name.
+     */
+    public String getName(long offset) {
+        return read(offset)[0];
+    }
+
+    /**
+     * Gets the description stored at an offset.
+     *
+     * @param offset the offset of the text.
+     * @return the description.
+     */
+    public String getDescription(long offset) {
+        return read(offset)[1];
+    }
+
+    /**
+     * Reads the name and description at an offset, from the cache if they were read recently.
+     *
+     * @param offset the offset of the text.
+     * @return the name and the description.
+     */
+    private String[] read(long offset) {
+        synchronized (this) {
+            String[] text = cache.get(offset);
+            if (text != null) return text;
+        }
+        String[] text = readUncached(offset);
+        synchronized (this) {
+            cache.put(offset, text);
+        }
+        return text;
+    }
+
+    /**
+     * Reads the name and description at an offset from the file, without looking in or adding to the
+     * cache, for reading many texts once (e.g. to index them) without pushing out the ones on display.
+     *
+     * @param offset the offset of the text.
+     * @return the name and the description.
+     */
+    String[] readUncached(long offset) {
+        ByteBuffer segment;
+        synchronized (this) {
+            segment = segments.get((int) (offset / SEGMENT_SIZE));
+        }
+        // Absolute reads don't move the buffer's position, so they can run alongside appends
+        int position = (int) (offset % SEGMENT_SIZE);
+        String[] text = new String[2];
+        for (int i = 0; i < text.length; i++) {
+            byte[] bytes = new byte[segment.getInt(position)];
+            segment.get(position + Integer.BYTES, bytes);
+            text[i] = new String(bytes, StandardCharsets.UTF_8);
+            position += Integer.BYTES + bytes.length;
+        }
+        return text;
+    }
+
+    /**
+     * Gets the number of bytes of text stored.
+     *
+     * @return the number of bytes.
+     */
+    public synchronized long getSize() {
+        if (segments.isEmpty()) return 0;
+        return (long) (segments.size() - 1) * SEGMENT_SIZE + segments.get(segments.size() - 1).position();
+    }
+
+    /**
+     * Closes the file, deleting it if it is temporary. The segments already mapped stay readable until
+     * they are garbage collected.
+     *
+     * @throws IOException if the file can't be closed or deleted.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            cleanable.clean();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Closes a store's file, and deletes it if it is temporary: when the store is closed, or once it is
+     * unreachable. It doesn't refer to the store, which would keep it reachable.
+     */
+    private static final class Release implements Runnable {
+        private final FileChannel channel;
+        private final Path temporaryFile;
+
+        private Release(FileChannel channel, Path temporaryFile) {
+            this.channel = channel;
+            this.temporaryFile = temporaryFile;
+        }
+
+        @Override
+        public void run() {
+            try {
+                channel.close();
+                if (temporaryFile != null) Files.deleteIfExists(temporaryFile);
+            } catch (IOException io) {
+                throw new UncheckedIOException(io);
+            }
+        }
+    }
+}
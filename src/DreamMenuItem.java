@@ -5,24 +5,127 @@ public class DreamMenuItem {
      * Created by Dr Andreas Shepley for COSC120 on 03/07/2023
      */
     private final Map<Filter,Object> filterMap;
+    private final Filter[] filters;
     private final double minPrice;
     private final double maxPrice;
+    private final MenuDictionary dictionary;
+    private final int bunCode;
+    private final long leafyGreensMask;
+    // One bit per Sauce ordinal, so sauce sets overlap exactly when their masks share a bit
+    private final long sauceMask;
+    private static final long NO_SAUCE_MASK = -1;
+    private final int hash;
 
     public DreamMenuItem(Map<Filter, Object> filterMap, double minPrice, double maxPrice) {
-        this.filterMap=new LinkedHashMap<>(filterMap);
+        this.filterMap=freeze(filterMap);
         this.minPrice=minPrice;
         this.maxPrice=maxPrice;
+        this.dictionary=null;
+        this.bunCode=-1;
+        this.leafyGreensMask=0;
+        this.sauceMask=maskSauces(this.filterMap.get(Filter.SAUCE_S));
+        this.filters=this.filterMap.keySet().toArray(new Filter[0]);
+        this.hash=hash(this.filterMap, minPrice, maxPrice);
     }
     public DreamMenuItem(Map<Filter, Object> filterMap) {
-        this.filterMap=new LinkedHashMap<>(filterMap);
+        this(filterMap,-1,-1);
+    }
+
+    /**
+     * Creates a menu item's attributes with its bun and leafy greens encoded in the menu's dictionary.
+     * The item keeps the dictionary's shared copies of those values rather than its own.
+     *
+     * @param filterMap the attributes of the menu item
+     * @param dictionary the dictionary of the menu the item belongs to
+     */
+    public DreamMenuItem(Map<Filter, Object> filterMap, MenuDictionary dictionary) {
+        this.filterMap=freeze(filterMap);
         this.minPrice=-1;
         this.maxPrice=-1;
+        this.dictionary=dictionary;
+        int bunCode=-1;
+        if(this.filterMap.get(Filter.BUN) instanceof String bun){
+            bunCode=dictionary.encodeBun(bun);
+            this.filterMap.put(Filter.BUN, dictionary.decodeBun(bunCode));
+        }
+        this.bunCode=bunCode;
+        long leafyGreensMask=0;
+        if(this.filterMap.get(Filter.LEAFY_GREENS) instanceof Collection<?> greens){
+            List<String> names = new ArrayList<>();
+            for(Object green: greens) names.add((String) green);
+            leafyGreensMask=dictionary.encodeLeafyGreens(names);
+            this.filterMap.put(Filter.LEAFY_GREENS, dictionary.decodeLeafyGreens(leafyGreensMask));
+        }
+        this.leafyGreensMask=leafyGreensMask;
+        this.sauceMask=maskSauces(this.filterMap.get(Filter.SAUCE_S));
+        this.filters=this.filterMap.keySet().toArray(new Filter[0]);
+        this.hash=hash(this.filterMap, minPrice, maxPrice);
+    }
+
+    private DreamMenuItem(DreamMenuItem criteria, MenuDictionary dictionary) {
+        this.filterMap=criteria.filterMap;
+        this.minPrice=criteria.minPrice;
+        this.maxPrice=criteria.maxPrice;
+        this.dictionary=dictionary;
+        this.bunCode=dictionary.getBunCode(filterMap.get(Filter.BUN));
+        this.leafyGreensMask=filterMap.get(Filter.LEAFY_GREENS) instanceof Collection<?> greens ? dictionary.getLeafyGreensMask(greens) : 0;
+        this.sauceMask=criteria.sauceMask;
+        this.filters=criteria.filters;
+        this.hash=criteria.hash;
+    }
+
+    /**
+     * Copies a filter map, turning every set of values into an unmodifiable set so the item can't be
+     * changed through the map it was made from (and sets compare equal whatever their original type).
+     *
+     * @param filterMap the filter map
+     * @return the copy
+     */
+    private static Map<Filter, Object> freeze(Map<Filter, Object> filterMap){
+        Map<Filter, Object> frozen = new LinkedHashMap<>(filterMap);
+        for(Map.Entry<Filter, Object> entry: frozen.entrySet()){
+            if(entry.getValue() instanceof Collection<?> values) entry.setValue(Collections.unmodifiableSet(new LinkedHashSet<>(values)));
+        }
+        return frozen;
+    }
+
+    private static int hash(Map<Filter, Object> filterMap, double minPrice, double maxPrice){
+        return (filterMap.hashCode()*31 + Double.hashCode(minPrice))*31 + Double.hashCode(maxPrice);
+    }
+
+    /**
+     * Turns a set of sauces into a mask with the bit of each sauce's ordinal set.
+     *
+     * @param sauces the value of the sauce filter
+     * @return the mask, or NO_SAUCE_MASK if the value isn't a set of sauces
+     */
+    private static long maskSauces(Object sauces){
+        if(!(sauces instanceof Collection<?> collection)) return NO_SAUCE_MASK;
+        long mask = 0;
+        for(Object sauce: collection){
+            if(!(sauce instanceof Sauce s)) return NO_SAUCE_MASK;
+            mask |= 1L << s.ordinal();
+        }
+        return mask;
+    }
+
+    /**
+     * Translates these search criteria into the codes of a menu's dictionary, so they can be matched
+     * against that menu's items without comparing strings. Translate once per search, not per item.
+     *
+     * @param dictionary the dictionary of the menu being searched
+     * @return the encoded search criteria
+     */
+    public DreamMenuItem encode(MenuDictionary dictionary){
+        if(this.dictionary==dictionary) return this;
+        return new DreamMenuItem(this, dictionary);
     }
 
     public Map<Filter, Object> getAllFilters() {
         return new LinkedHashMap<>(filterMap);
     }
-    public Object getFilter(Filter key){return getAllFilters().get(key);}
+    public Object getFilter(Filter key){return filterMap.get(key);}
+    public boolean hasFilter(Filter key){return filterMap.containsKey(key);}
     public double getMinPrice() {
         return minPrice;
     }
@@ -46,21 +149,70 @@ public class DreamMenuItem {
     }
 
     public boolean matches(DreamMenuItem dreamMenuItem){
-        for(Filter key : dreamMenuItem.getAllFilters().keySet()) {
-            if(this.getAllFilters().containsKey(key)){
-                if(getFilter(key) instanceof Collection<?> && dreamMenuItem.getFilter(key) instanceof Collection<?>){
-                    Set<Object> intersect = new HashSet<>((Collection<?>) dreamMenuItem.getFilter(key));
-                    intersect.retainAll((Collection<?>) getFilter(key));
-                    if(intersect.size()==0) return false;
-                }
-                else{
-                    if(!this.getFilter(key).equals(dreamMenuItem.getFilter(key))) return false;
-                }
-            }
+        // The cached array rather than the key set, whose iterator would be allocated for every item
+        return matches(dreamMenuItem, dreamMenuItem.filters);
+    }
+
+    /**
+     * Checks the given search criteria against this item, filter by filter in the given order, so
+     * the filters most likely to fail can be checked first.
+     *
+     * @param dreamMenuItem the search criteria
+     * @param order the search's filters in the order to check them (see {@link QueryPlan})
+     * @return true if this item satisfies every filter
+     */
+    public boolean matches(DreamMenuItem dreamMenuItem, Filter[] order){
+        for(Filter key : order) {
+            if(!matches(key, dreamMenuItem)) return false;
         }
         return true;
     }
 
+    /**
+     * Checks a single filter of the given search criteria against this item. A filter the item
+     * doesn't carry (e.g. a bun on a salad) or the criteria don't specify always matches.
+     *
+     * @param key the filter to check
+     * @param dreamMenuItem the search criteria
+     * @return true if this item satisfies the criteria for the given filter
+     */
+    public boolean matches(Filter key, DreamMenuItem dreamMenuItem){
+        if(!filterMap.containsKey(key) || !dreamMenuItem.filterMap.containsKey(key)) return true;
+        Object value = filterMap.get(key);
+        Object wanted = dreamMenuItem.filterMap.get(key);
+        // Set overlaps are a single AND of masks wherever both sides have them, so nothing is allocated
+        if(key==Filter.SAUCE_S && sauceMask!=NO_SAUCE_MASK && dreamMenuItem.sauceMask!=NO_SAUCE_MASK) return (sauceMask & dreamMenuItem.sauceMask)!=0;
+        if(dictionary!=null && dictionary==dreamMenuItem.dictionary){
+            if(key==Filter.BUN && bunCode>=0) return bunCode==dreamMenuItem.bunCode;
+            if(key==Filter.LEAFY_GREENS && wanted instanceof Collection<?>) return (leafyGreensMask & dreamMenuItem.leafyGreensMask)!=0;
+        }
+        if(value instanceof Collection<?> && wanted instanceof Collection<?>){
+            Set<Object> intersect = new HashSet<>((Collection<?>) wanted);
+            intersect.retainAll((Collection<?>) value);
+            return intersect.size()!=0;
+        }
+        return value.equals(wanted);
+    }
+
+    /**
+     * Compares the attributes and price range. The order the filters were added in, and which menu's
+     * dictionary the values are encoded in, make no difference.
+     *
+     * @param o the object to compare with
+     * @return true if o is a DreamMenuItem with the same filters, values and price range
+     */
+    @Override
+    public boolean equals(Object o){
+        if(this==o) return true;
+        return o instanceof DreamMenuItem other && hash==other.hash && Double.compare(minPrice, other.minPrice)==0
+                && Double.compare(maxPrice, other.maxPrice)==0 && filterMap.equals(other.filterMap);
+    }
+
+    @Override
+    public int hashCode(){
+        return hash;
+    }
+
 
 
 }
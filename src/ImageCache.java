@@ -0,0 +1,110 @@
+import java.awt.*;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Scaled images shared between windows (and between kiosk sessions), so a picture is read and scaled
+ * once rather than every time a window shows it. Once the cache is full the least recently used image
+ * is dropped. Images are read as thumbnails by a {@link ThumbnailLoader}, and can be read ahead of
+ * time with {@link #warm(List, int, int)}. It is safe to use from several threads.
+ */
+public class ImageCache {
+    private final int capacity;
+    private final ThumbnailLoader loader;
+    private final Map<String, Image> images;
+
+    /**
+     * Creates an empty cache.
+     *
+     * @param capacity the largest number of images to keep; 0 to keep none.
+     */
+    public ImageCache(int capacity) {
+        this(capacity, new ThumbnailLoader());
+    }
+
+    /**
+     * Creates an empty cache reading its images through a thumbnail loader, e.g. one keeping the
+     * thumbnails on disk.
+     *
+     * @param capacity the largest number of images to keep; 0 to keep none.
+     * @param loader the thumbnail loader.
+     */
+    public ImageCache(int capacity, ThumbnailLoader loader) {
+        if (capacity < 0) throw new IllegalArgumentException("Capacity must not be negative");
+        this.capacity = capacity;
+        this.loader = loader;
+        this.images = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Image> eldest) {
+                return size() > ImageCache.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * Gets an image scaled to a size, reading it if it isn't cached. Images that can't be read aren't
+     * cached, so a missing picture is looked for again next time.
+     *
+     * @param path the path of the image file.
+     * @param width the width to scale to.
+     * @param height the height to scale to.
+     * @return the scaled image, or null if it could not be loaded.
+     */
+    public Image getImage(String path, int width, int height) {
+        String key = width + "x" + height + ":" + path;
+        synchronized (this) {
+            Image image = images.get(key);
+            if (image != null) return image;
+        }
+        // Read without holding the lock, so other windows aren't held up; at worst two read the same image
+        Image image = null;
+        try {
+            image = loader.load(path, width, height);
+        } catch (IOException | IllegalArgumentException e) {
+            e.printStackTrace();
+        }
+        if (image != null && capacity > 0) {
+            synchronized (this) {
+                images.putIfAbsent(key, image);
+            }
+        }
+        return image;
+    }
+
+    /**
+     * Reads images into the cache in the background, on a thread per processor, so the first windows
+     * to show them don't wait for them. No more images are read than the cache can hold.
+     *
+     * @param paths the paths of the image files.
+     * @param width the width to scale to.
+     * @param height the height to scale to.
+     * @return a future completed once every image has been read, or failed to be.
+     */
+    public CompletableFuture<Void> warm(List<String> paths, int width, int height) {
+        // Daemon threads, so a warm-up still running doesn't keep the application open
+        ExecutorService readers = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+            Thread thread = new Thread(runnable, "image-warm-up");
+            thread.setDaemon(true);
+            return thread;
+        });
+        CompletableFuture<?>[] reads = paths.stream().limit(capacity)
+                .map(path -> CompletableFuture.runAsync(() -> getImage(path, width, height), readers))
+                .toArray(CompletableFuture[]::new);
+        readers.shutdown();
+        return CompletableFuture.allOf(reads);
+    }
+
+    /**
+     * Gets the number of images cached.
+     *
+     * @return the number of images.
+     */
+    public synchronized int size() {
+        return images.size();
+    }
+}
@@ -1,7 +1,5 @@
-import javax.imageio.ImageIO;
 import javax.swing.*;
 import java.awt.*;
-import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
 
@@ -110,7 +108,8 @@ public class InterfaceUtilities {
     }
 
     /**
-     * Creates a new Image object from the given file path.
+     * Creates a new Image object from the given file path, decoded as a thumbnail (see
+     * {@link ThumbnailLoader}).
      *
      * @param path        The path to the image file.
      * @param imageWidth  The desired width of the image.
@@ -121,8 +120,7 @@ public class InterfaceUtilities {
         Image image = null;
 
         try {
-            BufferedImage bufferedImage = ImageIO.read(new File(path));
-            image = bufferedImage.getScaledInstance(imageWidth, imageHeight, Image.SCALE_SMOOTH);
+            image = ThumbnailLoader.decode(new File(path), imageWidth, imageHeight);
         } catch (IOException | IllegalArgumentException e) {
             e.printStackTrace();
         }
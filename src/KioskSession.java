@@ -0,0 +1,327 @@
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.event.ComponentListener;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.IntConsumer;
+
+/**
+ * One customer-facing flow of the kiosk: search, results, then order, starting again with a fresh
+ * search once the order is placed. A session holds only its own windows; the menu, the image cache
+ * and the order writer are shared, so one JVM can run a session for every touch screen in the store.
+ * So that no session holds up the others, searches run off the event thread and dialogs are modeless
+ * and owned by the session's own window, with the flow carrying on once they are closed.
+ */
+public class KioskSession {
+    // With -Dmenu.rankByPopularity=true, this many of the most ordered matches are shown first
+    private static final int POPULAR_RESULTS = 10;
+    // Package-private so replayed sessions offer as many alternatives as the kiosk did
+    static final int SUGGESTED_ALTERNATIVES = 10;
+    private final CompletableFuture<Menu> menu;
+    private final ImageCache imageCache;
+    private final OrderWriter orderWriter;
+    private final SessionRecorder sessionRecorder;
+    private final boolean restartOnClose;
+    private SearchInterface searchInterface;
+    private long session;
+
+    /**
+     * Creates a session. Nothing is shown until it is started.
+     *
+     * @param menu the menu, which may still be loading.
+     * @param imageCache the images shared by every session.
+     * @param orderWriter places the orders of every session.
+     * @param sessionRecorder records what customers do, or null to record nothing.
+     * @param restartOnClose true to start a fresh search when a window is closed (for a kiosk shared
+     *                       with other sessions), false to leave the application as the window does.
+     */
+    public KioskSession(CompletableFuture<Menu> menu, ImageCache imageCache, OrderWriter orderWriter,
+                        SessionRecorder sessionRecorder, boolean restartOnClose) {
+        this.menu = menu;
+        this.imageCache = imageCache;
+        this.orderWriter = orderWriter;
+        this.sessionRecorder = sessionRecorder;
+        this.restartOnClose = restartOnClose;
+    }
+
+    /**
+     * Starts the session for a new customer, showing a fresh search window.
+     */
+    public void start() {
+        if (sessionRecorder != null) session = sessionRecorder.startSession();
+        searchInterface = new SearchInterface(menu, imageCache);
+        handleSearchGUI();
+    }
+
+    /**
+     * Gets the search window of the current customer.
+     *
+     * @return the search interface.
+     */
+    public SearchInterface getSearchInterface() {
+        return searchInterface;
+    }
+
+    /**
+     * Closes every window of the current customer and starts again for the next one.
+     *
+     * @param frames the windows still open.
+     */
+    private void restart(JFrame... frames) {
+        for (JFrame frame : frames) close(frame);
+        close(searchInterface.getFrame());
+        start();
+    }
+
+    /**
+     * Disposes a window without running the flow's listeners, which would otherwise take the hiding of
+     * the window as the customer moving on.
+     *
+     * @param frame the window.
+     */
+    private static void close(JFrame frame) {
+        for (ComponentListener listener : frame.getComponentListeners()) frame.removeComponentListener(listener);
+        frame.dispose();
+    }
+
+    /**
+     * Lets a window's close button start again for the next customer, if the session restarts on close.
+     *
+     * @param frame the window.
+     */
+    private void restartOnClose(JFrame frame) {
+        if (!restartOnClose) return;
+        frame.setDefaultCloseOperation(WindowConstants.DO_NOTHING_ON_CLOSE);
+        frame.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                restart(frame);
+            }
+        });
+    }
+
+    /**
+     * Shows a dialog over one of this session's windows. It is modeless, so neither the other sessions
+     * nor the event thread wait for the customer to close it; the flow carries on from {@code then}.
+     *
+     * @param frame the window owning the dialog.
+     * @param message the message.
+     * @param title the title.
+     * @param messageType the type of message, e.g. {@link JOptionPane#ERROR_MESSAGE}.
+     * @param options the buttons, or null for just "OK".
+     * @param then takes the index of the button chosen, or -1 if the dialog was closed without one.
+     */
+    private static void showDialog(JFrame frame, String message, String title, int messageType, Object[] options, IntConsumer then) {
+        JOptionPane pane = new JOptionPane(message, messageType, JOptionPane.DEFAULT_OPTION, null, options, options == null ? null : options[0]);
+        JDialog dialog = pane.createDialog(frame, title);
+        dialog.setModalityType(Dialog.ModalityType.MODELESS);
+        dialog.addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentHidden(ComponentEvent e) {
+                dialog.removeComponentListener(this);
+                dialog.dispose();
+                Object value = pane.getValue();
+                int choice = -1;
+                if (options == null) {
+                    if (value instanceof Integer index) choice = index;
+                } else {
+                    for (int i = 0; i < options.length; i++) if (options[i].equals(value)) choice = i;
+                }
+                then.accept(choice);
+            }
+        });
+        dialog.setVisible(true);
+    }
+
+    /**
+     * Shows the search window and runs the search when the customer submits it.
+     */
+    private void handleSearchGUI() {
+        // Display the search interface
+        searchInterface.show();
+        restartOnClose(searchInterface.getFrame());
+
+        // Add a ComponentListener to the SearchInterface's frame to handle window events
+        searchInterface.getFrame().addComponentListener(new ComponentAdapter() {
+            /**
+             * Invoked when the component has been made invisible.
+             *
+             * @param e The ComponentEvent object.
+             */
+            @Override
+            public void componentHidden(ComponentEvent e) {
+                // Create a DreamMenuItem object using the search criteria and price range obtained from the SearchInterface
+                DreamMenuItem dreamMenuItem = new DreamMenuItem(
+                        searchInterface.getFilterMap(),
+                        Double.parseDouble(searchInterface.getMinPrice()),
+                        Double.parseDouble(searchInterface.getMaxPrice())
+                );
+
+                // Search off the event thread, so the other sessions' windows stay responsive meanwhile
+                menu.thenApplyAsync(loaded -> search(loaded, dreamMenuItem))
+                        .whenComplete((outcome, failure) -> SwingUtilities.invokeLater(() -> {
+                            if (failure != null) {
+                                showDialog(searchInterface.getFrame(), "Search could not be run. \nError message: " + failure.getMessage(),
+                                        "Error", JOptionPane.ERROR_MESSAGE, null, choice -> searchInterface.show());
+                            } else {
+                                showOutcome(outcome);
+                            }
+                        }));
+            }
+        });
+    }
+
+    /**
+     * Runs a search, and looks for the nearest alternatives if it finds nothing. Called off the event
+     * thread.
+     *
+     * @param menu the menu.
+     * @param dreamMenuItem the customer's search.
+     * @return what to show the customer.
+     */
+    private SearchOutcome search(Menu menu, DreamMenuItem dreamMenuItem) {
+        // Skip the search if no item of the chosen type is in the price range at all
+        if (dreamMenuItem.getFilter(Filter.TYPE) instanceof Type type
+                && menu.countInPriceRange(type, dreamMenuItem.getMinPrice(), dreamMenuItem.getMaxPrice()) == 0) {
+            PriceHistogram prices = menu.getPriceHistogram(type);
+            String range = prices.size() == 0 ? "" : String.format(" (prices range from $%.2f to $%.2f)", prices.getMinPrice(), prices.getMaxPrice());
+            return new SearchOutcome("No " + type + " Items In That Price Range" + range, null, null);
+        }
+
+        // Find menu items that match the given DreamMenuItem's attributes
+        List<MenuItem> matching = menu.findMatch(dreamMenuItem);
+        if (Boolean.getBoolean("menu.rankByPopularity")) matching = orderWriter.getPopularityRanker().promote(matching, POPULAR_RESULTS);
+        if (sessionRecorder != null) sessionRecorder.recordSearch(session, dreamMenuItem, matching.size());
+        if (!matching.isEmpty()) return new SearchOutcome(null, matching, null);
+
+        // If no matches are found, offer the nearest ways to relax the search, if there are any
+        List<SearchSuggestion> suggestions = menu.suggestAlternatives(dreamMenuItem, SUGGESTED_ALTERNATIVES);
+        if (suggestions.isEmpty()) return new SearchOutcome("No Results Found", null, null);
+        return new SearchOutcome(null, null, suggestions);
+    }
+
+    /**
+     * Shows the customer the outcome of a search: the results, an explanation of why there are none,
+     * or the alternatives to choose from.
+     *
+     * @param outcome the outcome.
+     */
+    private void showOutcome(SearchOutcome outcome) {
+        JFrame frame = searchInterface.getFrame();
+        if (outcome.matching != null) {
+            handleResultsGUI(outcome.matching);
+        } else if (outcome.message != null) {
+            showDialog(frame, outcome.message, "Error", JOptionPane.ERROR_MESSAGE, null, choice -> searchInterface.show());
+        } else {
+            List<SearchSuggestion> suggestions = outcome.suggestions;
+            Object[] options = new Object[suggestions.size() + 1];
+            for (int i = 0; i < suggestions.size(); i++) options[i] = suggestions.get(i).toString();
+            options[suggestions.size()] = "Search again";
+            showDialog(frame, "No Results Found. Closest alternatives:", "No Results", JOptionPane.INFORMATION_MESSAGE, options, choice -> {
+                if (choice < 0 || choice >= suggestions.size()) {
+                    searchInterface.show();
+                    return;
+                }
+                DreamMenuItem relaxed = suggestions.get(choice).getRelaxedSearch();
+                menu.thenApplyAsync(loaded -> {
+                            List<MenuItem> matching = loaded.findMatch(relaxed);
+                            if (sessionRecorder != null) sessionRecorder.recordAlternative(session, relaxed, matching.size());
+                            return matching;
+                        }).whenComplete((matching, failure) -> SwingUtilities.invokeLater(() -> {
+                            if (failure == null) handleResultsGUI(matching);
+                            else showOutcome(new SearchOutcome("Search could not be run. \nError message: " + failure.getMessage(), null, null));
+                        }));
+            });
+        }
+    }
+
+    /**
+     * Shows the matching menu items, then moves on to the order or back to the search. The window is
+     * disposed once the customer leaves it, so a long session doesn't pile up hidden windows.
+     *
+     * @param matching the menu items that match the customer's search.
+     */
+    private void handleResultsGUI(List<MenuItem> matching) {
+        // Create and show the ResultInterface window with the matching menu items.
+        ResultInterface resultInterface = new ResultInterface(matching, imageCache);
+        resultInterface.show();
+        restartOnClose(resultInterface.getFrame());
+
+        // Add a ComponentListener to the ResultInterface's frame.
+        resultInterface.getFrame().addComponentListener(new ComponentAdapter() {
+            /**
+             * Called when the ResultInterface window is hidden.
+             *
+             * @param e The ComponentEvent.
+             */
+            public void componentHidden(ComponentEvent e) {
+                close(resultInterface.getFrame());
+                // Check the state of the ResultInterface to determine the next action.
+                if (Objects.equals(resultInterface.getState(), "Continue")) {
+                    // If the state is "Continue", proceed to handle the order.
+                    if (sessionRecorder != null) sessionRecorder.recordPick(session, resultInterface.getSelectedMenuItem());
+                    handleOrderGUI(resultInterface.getSelectedMenuItem());
+                } else {
+                    // Otherwise, re-show the SearchInterface for a new search.
+                    searchInterface.show();
+                }
+            }
+        });
+    }
+
+    /**
+     * Shows the order window, then places the order and starts again for the next customer.
+     *
+     * @param menuItem the menu item to be ordered.
+     */
+    private void handleOrderGUI(MenuItem menuItem) {
+        // Create the OrderInterface and display it.
+        OrderInterface orderInterface = new OrderInterface(menuItem, imageCache);
+        orderInterface.show();
+        restartOnClose(orderInterface.getFrame());
+
+        // Add a listener to handle when the frame is hidden.
+        orderInterface.getFrame().addComponentListener(new ComponentAdapter() {
+            /**
+             * Called when the frame is hidden. Submits the order and starts again.
+             *
+             * @param e The ComponentEvent triggering this method.
+             */
+            public void componentHidden(ComponentEvent e) {
+                Geek geek = orderInterface.getGeek();
+                String specialRequests = orderInterface.getSpecialRequests();
+                if (sessionRecorder != null) sessionRecorder.recordOrder(session, geek, menuItem, specialRequests);
+                JFrame frame = orderInterface.getFrame();
+                try {
+                    orderWriter.submitOrder(geek, menuItem, specialRequests);
+                    showDialog(frame, "Order Has Been Placed", "Confirmation", JOptionPane.INFORMATION_MESSAGE, null, choice -> restart(frame));
+                } catch (UncheckedIOException io) {
+                    showDialog(frame, "Order could not be placed. \nError message: " + io.getMessage(), "Error", JOptionPane.ERROR_MESSAGE, null,
+                            choice -> restart(frame));
+                }
+            }
+        });
+    }
+
+    /**
+     * What a search found: the matches, a message saying why there are none, or the alternatives.
+     * Exactly one of the fields is set.
+     */
+    private static final class SearchOutcome {
+        private final String message;
+        private final List<MenuItem> matching;
+        private final List<SearchSuggestion> suggestions;
+
+        private SearchOutcome(String message, List<MenuItem> matching, List<SearchSuggestion> suggestions) {
+            this.message = message;
+            this.matching = matching;
+            this.suggestions = suggestions;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+
+/**
+ * Checks that matching a search against menu items allocates nothing, so searches don't churn the
+ * garbage collector. Searches are made up from the menu's own items (a random selection of each
+ * item's filters, including sauce and leafy greens sets), encoded the way {@link Menu#findMatch}
+ * encodes them, and matched against every item; the bytes the thread allocates meanwhile are
+ * measured with the JVM's per-thread allocation counter. The check exits with status 1 if matching
+ * allocated, so it can be run as part of a build, and with status 2 if it couldn't be run.
+ */
+public class MatchAllocationCheck {
+    private static final int SEARCHES = 500;
+    private static final int WARM_UP_PASSES = 5;
+    // The allocation counter itself can be off by a few bytes
+    private static final long TOLERANCE_BYTES = 1024;
+
+    /**
+     * Runs from the command line: {@code --check-allocation [--menu=path]}.
+     *
+     * @param args the command-line arguments, after "--check-allocation".
+     * @param defaultMenu the menu file to use when none is given.
+     */
+    public static void main(String[] args, String defaultMenu) {
+        String menuPath = defaultMenu;
+        for (String arg : args) if (arg.startsWith("--menu=")) menuPath = arg.substring("--menu=".length());
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads)
+                || !threads.isThreadAllocatedMemorySupported()) {
+            System.out.println("This JVM can't measure allocation, so the check can't run");
+            System.exit(2);
+            return;
+        }
+        threads.setThreadAllocatedMemoryEnabled(true);
+        Menu menu;
+        try {
+            menu = MenuSearcher.loadMenu(menuPath);
+        } catch (UncheckedIOException | IllegalArgumentException e) {
+            System.out.println("Menu could not be loaded. \nError message: " + e.getMessage());
+            System.exit(2);
+            return;
+        }
+        List<DreamMenuItem> items = new ArrayList<>();
+        for (MenuItem menuItem : menu.getSnapshot()) items.add(menuItem.getDreamMenuItem());
+        if (items.isEmpty()) {
+            System.out.println("The menu is empty, so there is nothing to check");
+            System.exit(2);
+            return;
+        }
+        List<DreamMenuItem> searches = searches(items, menu.getDictionary(), new Random(42));
+
+        // Matching is compiled before it is measured, as it would be in a running kiosk
+        for (int pass = 0; pass < WARM_UP_PASSES; pass++) count(searches, items);
+        long thread = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(thread);
+        long matches = count(searches, items);
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+
+        long comparisons = (long) searches.size() * items.size();
+        System.out.printf("%d searches x %d items: %d matches, %d bytes allocated%n", searches.size(), items.size(), matches, allocated);
+        if (allocated > TOLERANCE_BYTES) {
+            System.out.printf("FAILED: matching allocated %.3f bytes per comparison%n", (double) allocated / comparisons);
+            System.exit(1);
+        }
+        System.out.println("OK: matching doesn't allocate");
+    }
+
+    /**
+     * Makes up searches from the menu's items, each keeping a random selection of one item's filters.
+     *
+     * @param items the items' attributes.
+     * @param dictionary the menu's dictionary, to encode the searches with.
+     * @param random the source of randomness.
+     * @return the encoded searches.
+     */
+    private static List<DreamMenuItem> searches(List<DreamMenuItem> items, MenuDictionary dictionary, Random random) {
+        List<DreamMenuItem> searches = new ArrayList<>(SEARCHES);
+        for (int i = 0; i < SEARCHES; i++) {
+            Map<Filter, Object> filterMap = new LinkedHashMap<>();
+            for (Map.Entry<Filter, Object> filter : items.get(random.nextInt(items.size())).getAllFilters().entrySet()) {
+                if (random.nextBoolean()) continue;
+                Object value = filter.getValue();
+                if (value instanceof Collection<?> values) {
+                    // A random part of the set, so some searches overlap the items' sets and some don't
+                    List<Object> kept = new ArrayList<>();
+                    for (Object element : values) if (random.nextBoolean()) kept.add(element);
+                    if (kept.isEmpty()) continue;
+                    value = new HashSet<>(kept);
+                }
+                filterMap.put(filter.getKey(), value);
+            }
+            searches.add(new DreamMenuItem(filterMap, 0, Double.MAX_VALUE).encode(dictionary));
+        }
+        return searches;
+    }
+
+    private static long count(List<DreamMenuItem> searches, List<DreamMenuItem> items) {
+        long matches = 0;
+        for (DreamMenuItem search : searches) {
+            for (DreamMenuItem item : items) if (item.matches(search)) matches++;
+        }
+        return matches;
+    }
+}
@@ -1,18 +1,428 @@
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
 
 public class Menu {
     /**
      * Created by Dr Andreas Shepley for COSC120 on 03/07/2023
      */
-    private final Set<MenuItem> menu = new HashSet<>();
+    private static final double PRICE_BUCKET_WIDTH = 5;
+    private static final int SEGMENT_SIZE = 16384;
+    private static final int MAX_SUGGESTIONS = 3;
+    // The text index is rebuilt in the background once this many items' text has changed
+    private static final int TEXT_REBUILD_THRESHOLD = 256;
+    // Beyond this many, changes to the items' text are no longer kept until the rebuild
+    private static final int MAX_TEXT_CHANGES = 4096;
+    private final MenuDictionary dictionary = new MenuDictionary();
+    private final MenuStatistics statistics = new MenuStatistics();
+    private final Map<Type, PriceHistogram> priceHistograms = new EnumMap<>(Type.class);
+    // Changed only by writers, while holding the lock; text searches look items up in it without the lock
+    private final Map<Long, MenuItem> itemsById = new ConcurrentHashMap<>();
+    private final Object writeLock = new Object();
+    private volatile MenuSnapshot menu = MenuSnapshot.EMPTY;
+    // Null until the first text search (or getTextIndex) builds the index
+    private volatile TextState textState;
+    private final Object textIndexLock = new Object();
+    // Only touched by writers, while holding the lock
+    private long textSequence;
+    private boolean textRebuilding;
+    private int parallelThreshold = 4*SEGMENT_SIZE;
+    private ForkJoinPool pool = ForkJoinPool.commonPool();
 
+    public Menu(){
+        this(PRICE_BUCKET_WIDTH);
+    }
+
+    /**
+     * Creates an empty menu.
+     *
+     * @param priceBucketWidth the width in dollars of the buckets of the price histograms
+     */
+    public Menu(double priceBucketWidth){
+        for(Type type: Type.values()) priceHistograms.put(type, new PriceHistogram(priceBucketWidth));
+    }
+
+    /**
+     * Adds an item, replacing any item with the same identifier. Searches already under way carry on
+     * with the menu as it was; later ones see the item.
+     *
+     * @param menuItem the item to add
+     */
     public void addItem(MenuItem menuItem){
-        this.menu.add(menuItem);
+        synchronized (writeLock){
+            MenuSnapshot changed = menu;
+            menuItem = share(menuItem);
+            MenuItem replaced = itemsById.put(menuItem.getMenuItemIdentifier(), menuItem);
+            if(menuItem.equals(replaced)){
+                // Nothing changed, so keep the item already on the menu and don't make a new version
+                itemsById.put(replaced.getMenuItemIdentifier(), replaced);
+                return;
+            }
+            if(replaced!=null){
+                changed = changed.without(replaced);
+                untrack(replaced);
+            }
+            track(menuItem);
+            statistics.publish();
+            noteTextChange(replaced, menuItem);
+            menu = changed.with(menuItem);
+        }
+    }
+
+    /**
+     * Adds many items as a single new version of the menu, replacing any items with the same identifiers.
+     * If the batch itself holds an identifier more than once, the last of those items is the one added.
+     *
+     * @param menuItems the items to add
+     */
+    public void addItems(Collection<MenuItem> menuItems){
+        synchronized (writeLock){
+            MenuSnapshot changed = menu;
+            List<MenuItem> added = new ArrayList<>(menuItems.size());
+            // The histograms take their prices in one sorted batch per type, not one insertion per item
+            PriceBatch addedPrices = new PriceBatch();
+            PriceBatch removedPrices = new PriceBatch();
+            // Only the last item of the batch with each identifier is added, so none is counted and then replaced
+            Map<Long, MenuItem> batch = new LinkedHashMap<>();
+            for(MenuItem menuItem: menuItems) batch.put(menuItem.getMenuItemIdentifier(), menuItem);
+            // Too many to keep as text changes, so the text index is marked for rebuilding without reading them
+            boolean reindex = textState!=null && batch.size()>MAX_TEXT_CHANGES;
+            if(reindex){
+                textState = textState.overflow(++textSequence);
+                scheduleTextRebuild();
+            }
+            for(MenuItem menuItem: batch.values()){
+                menuItem = share(menuItem);
+                added.add(menuItem);
+                MenuItem replaced = itemsById.put(menuItem.getMenuItemIdentifier(), menuItem);
+                if(replaced==menuItem) continue;
+                if(replaced!=null){
+                    changed = changed.without(replaced);
+                    statistics.remove(replaced.getDreamMenuItem());
+                    removedPrices.add(replaced);
+                }
+                statistics.add(menuItem.getDreamMenuItem());
+                addedPrices.add(menuItem);
+                if(!reindex) noteTextChange(replaced, menuItem);
+            }
+            for(Type type: Type.values()){
+                removedPrices.removeFrom(type, priceHistograms.get(type));
+                addedPrices.addTo(type, priceHistograms.get(type));
+            }
+            statistics.publish();
+            menu = changed.withAll(added);
+        }
+    }
+
+    /**
+     * Removes the item with the given identifier.
+     *
+     * @param menuItemIdentifier the identifier of the item
+     * @return the removed item, or null if there was none
+     */
+    public MenuItem removeItem(long menuItemIdentifier){
+        synchronized (writeLock){
+            MenuItem removed = itemsById.remove(menuItemIdentifier);
+            if(removed!=null){
+                menu = menu.without(removed);
+                untrack(removed);
+                statistics.publish();
+                noteTextChange(removed, null);
+            }
+            return removed;
+        }
+    }
+
+    /**
+     * Changes the price of the item with the given identifier.
+     *
+     * @param menuItemIdentifier the identifier of the item
+     * @param price the new price
+     * @return the repriced item, or null if there is no such item
+     */
+    public MenuItem updatePrice(long menuItemIdentifier, double price){
+        synchronized (writeLock){
+            MenuItem menuItem = itemsById.get(menuItemIdentifier);
+            if(menuItem==null) return null;
+            MenuItem repriced = menuItem.withPrice(price);
+            itemsById.put(menuItemIdentifier, repriced);
+            untrack(menuItem);
+            track(repriced);
+            menu = menu.without(menuItem).with(repriced);
+            return repriced;
+        }
+    }
+
+    /**
+     * Makes an item use the menu's shared copy of its attributes.
+     *
+     * @param menuItem the item
+     * @return the item, or an equal one holding the shared attributes
+     */
+    private MenuItem share(MenuItem menuItem){
+        DreamMenuItem shared = dictionary.intern(menuItem.getDreamMenuItem());
+        if(shared==menuItem.getDreamMenuItem()) return menuItem;
+        return menuItem.withDreamMenuItem(shared);
+    }
+
+    /**
+     * Counts an item in the menu statistics and price histograms. Only called by writers.
+     *
+     * @param menuItem the item added
+     */
+    private void track(MenuItem menuItem){
+        statistics.add(menuItem.getDreamMenuItem());
+        if(menuItem.getDreamMenuItem().getFilter(Filter.TYPE) instanceof Type type) priceHistograms.get(type).add(menuItem.getPrice());
+    }
+
+    /**
+     * Stops counting an item in the menu statistics and price histograms. Only called by writers.
+     *
+     * @param menuItem the item removed
+     */
+    private void untrack(MenuItem menuItem){
+        statistics.remove(menuItem.getDreamMenuItem());
+        if(menuItem.getDreamMenuItem().getFilter(Filter.TYPE) instanceof Type type) priceHistograms.get(type).remove(menuItem.getPrice());
+    }
+
+    /**
+     * Keeps a change to an item's text beside the text index, so text searches see it before the index
+     * is rebuilt. Changes of price or attributes alone don't touch the index. Only called by writers.
+     *
+     * @param before the item before the change, or null if it was added
+     * @param after the item after the change, or null if it was removed
+     */
+    private void noteTextChange(MenuItem before, MenuItem after){
+        TextState state = textState;
+        // Before the first index is built there's nothing to keep it beside
+        if(state==null) return;
+        if(before!=null && after!=null && Arrays.equals(before.getText(), after.getText())) return;
+        MenuItem changed = after==null ? before : after;
+        textState = state.with(changed.getMenuItemIdentifier(), after==null ? null : TextIndex.words(after), ++textSequence);
+        if(textState.needsRebuild()) scheduleTextRebuild();
+    }
+
+    /**
+     * Starts rebuilding the text index in the background, unless it is already being rebuilt (or is
+     * still being built for the first time). Only called by writers.
+     */
+    private void scheduleTextRebuild(){
+        if(textRebuilding || textState.index==null) return;
+        textRebuilding = true;
+        CompletableFuture.runAsync(this::rebuildTextIndex, pool).whenComplete((done, failure) -> {
+            if(failure==null) return;
+            synchronized (writeLock){
+                textRebuilding = false;
+            }
+            System.out.println("Text index could not be rebuilt. \nError message: "+failure.getMessage());
+        });
+    }
+
+    /**
+     * Indexes the items' text as it is now, without holding up writers or text searches, then
+     * publishes the index with the text changes made while it was being built.
+     *
+     * @return the new state of the text index
+     */
+    private TextState rebuildTextIndex(){
+        MenuSnapshot snapshot;
+        long sequence;
+        synchronized (writeLock){
+            snapshot = menu;
+            sequence = textSequence;
+            // Start keeping changes now, so those made during the first build aren't lost
+            if(textState==null) textState = new TextState(null, Map.of(), -1);
+        }
+        TextIndex index = new TextIndex(snapshot);
+        synchronized (writeLock){
+            textState = textState.rebuilt(index, sequence);
+            textRebuilding = false;
+            if(textState.needsRebuild()) scheduleTextRebuild();
+            return textState;
+        }
+    }
+
+    /**
+     * The prices of a batch of items, by type, for updating the price histograms in one go.
+     */
+    private static final class PriceBatch {
+        private final double[][] prices = new double[Type.values().length][];
+        private final int[] counts = new int[Type.values().length];
+
+        private void add(MenuItem menuItem){
+            if(!(menuItem.getDreamMenuItem().getFilter(Filter.TYPE) instanceof Type type)) return;
+            int t = type.ordinal();
+            if(prices[t]==null) prices[t] = new double[16];
+            else if(counts[t]==prices[t].length) prices[t] = Arrays.copyOf(prices[t], counts[t]*2);
+            prices[t][counts[t]++] = menuItem.getPrice();
+        }
+
+        private void addTo(Type type, PriceHistogram histogram){
+            if(counts[type.ordinal()]>0) histogram.addAll(prices[type.ordinal()], counts[type.ordinal()]);
+        }
+
+        private void removeFrom(Type type, PriceHistogram histogram){
+            if(counts[type.ordinal()]>0) histogram.removeAll(prices[type.ordinal()], counts[type.ordinal()]);
+        }
+    }
+
+    /**
+     * A text index together with the changes to the items' text since it was built, published as one
+     * so a text search sees the two consistently. Each change is kept by identifier with the item's
+     * new words, or null words if the item was removed. Past a limit changes stop being kept (the
+     * index is overflowed) and, until it is rebuilt, searches only miss items added since and match
+     * items by their old text; removed items are still left out, as they are no longer on the menu.
+     */
+    private static final class TextState {
+        // Null while the first index is being built
+        private final TextIndex index;
+        private final Map<Long, TextChange> changes;
+        // The sequence number of the last change not kept, or -1 if all have been
+        private final long overflowedAt;
+
+        private TextState(TextIndex index, Map<Long, TextChange> changes, long overflowedAt){
+            this.index = index;
+            this.changes = changes;
+            this.overflowedAt = overflowedAt;
+        }
+
+        private TextState with(long identifier, Set<String> words, long sequence){
+            if(overflowedAt>=0 || changes.size()>=MAX_TEXT_CHANGES) return overflow(sequence);
+            Map<Long, TextChange> changed = new HashMap<>(changes);
+            changed.put(identifier, new TextChange(sequence, words));
+            return new TextState(index, changed, -1);
+        }
+
+        private TextState overflow(long sequence){
+            return new TextState(index, changes, sequence);
+        }
+
+        /**
+         * Replaces the index with one built from the items as they were after a given change, keeping
+         * only the changes made after it.
+         */
+        private TextState rebuilt(TextIndex index, long sequence){
+            Map<Long, TextChange> later = new HashMap<>();
+            for(Map.Entry<Long, TextChange> change: changes.entrySet()){
+                if(change.getValue().sequence>sequence) later.put(change.getKey(), change.getValue());
+            }
+            return new TextState(index, later, overflowedAt>sequence ? overflowedAt : -1);
+        }
+
+        private boolean needsRebuild(){
+            return overflowedAt>=0 || changes.size()>=TEXT_REBUILD_THRESHOLD;
+        }
+    }
+
+    private static final class TextChange {
+        private final long sequence;
+        // Null if the item was removed
+        private final Set<String> words;
+
+        private TextChange(long sequence, Set<String> words){
+            this.sequence = sequence;
+            this.words = words;
+        }
+    }
+
+    /**
+     * Gets the current version of the menu. A reader that needs several consistent answers (e.g. a
+     * search and its facet counts) can work from one snapshot while writers carry on.
+     *
+     * @return the current snapshot
+     */
+    public MenuSnapshot getSnapshot(){
+        return menu;
+    }
+
+    /**
+     * Configures parallel searching. Menus with fewer items than the threshold are searched on the
+     * calling thread; larger ones are split into segments searched on the given pool.
+     *
+     * @param parallelThreshold the smallest menu size to search in parallel
+     * @param pool the pool to search on
+     */
+    public void setParallelSearch(int parallelThreshold, ForkJoinPool pool){
+        this.parallelThreshold = parallelThreshold;
+        this.pool = pool;
+    }
+
+    public MenuDictionary getDictionary(){
+        return dictionary;
+    }
+
+    /**
+     * Gets the counts of each filter value on the menu, kept up to date as items change.
+     *
+     * @return the menu statistics
+     */
+    public MenuStatistics getStatistics(){
+        return statistics;
+    }
+
+    /**
+     * Gets the plan a search would follow: the order its filters are checked in and how many items
+     * each is expected to let through. For debugging slow or surprising searches.
+     *
+     * @param dreamMenuItem the search criteria
+     * @return the query plan
+     */
+    public QueryPlan explain(DreamMenuItem dreamMenuItem){
+        return statistics.plan(dreamMenuItem);
+    }
+
+    /**
+     * Gets the distribution of the prices of one type of item, e.g. to draw a histogram next to the
+     * price fields.
+     *
+     * @param type the type of item
+     * @return the price histogram, kept up to date as the menu changes
+     */
+    public PriceHistogram getPriceHistogram(Type type){
+        return priceHistograms.get(type);
+    }
+
+    /**
+     * Counts the items of a type in a price range, without scanning the menu.
+     *
+     * @param type the type of item
+     * @param minPrice the lowest price, inclusive
+     * @param maxPrice the highest price, inclusive
+     * @return the exact number of items
+     */
+    public int countInPriceRange(Type type, double minPrice, double maxPrice){
+        return priceHistograms.get(type).count(minPrice, maxPrice);
+    }
+
+    /**
+     * Estimates how many items a search will find, without scanning the menu: the items of its type
+     * in its price range, scaled by the share of items passing each of its other filters (as if the
+     * filters were independent). Zero is exact: no items of the type are in the price range.
+     *
+     * @param dreamMenuItem the search criteria
+     * @return the estimated number of matching items
+     */
+    public double estimateMatches(DreamMenuItem dreamMenuItem){
+        Object type = dreamMenuItem.getFilter(Filter.TYPE);
+        double estimate;
+        if(type instanceof Type t) estimate = countInPriceRange(t, dreamMenuItem.getMinPrice(), dreamMenuItem.getMaxPrice());
+        else {
+            estimate = 0;
+            for(Type t: Type.values()) estimate += countInPriceRange(t, dreamMenuItem.getMinPrice(), dreamMenuItem.getMaxPrice());
+        }
+        int itemCount = statistics.getItemCount();
+        if(estimate==0 || itemCount==0) return estimate;
+        for(Map.Entry<Filter, Object> filter: dreamMenuItem.getAllFilters().entrySet()){
+            if(filter.getKey()==Filter.TYPE) continue;
+            estimate *= (double) statistics.estimatePassing(filter.getKey(), filter.getValue())/itemCount;
+        }
+        return estimate;
     }
 
     public Set<Object> getAllIngredientTypes(Filter filter){
         Set<Object> allSubtypes = new LinkedHashSet<>();
-        for(MenuItem menuItem: menu){
+        for(MenuItem menuItem: getSnapshot()){
             if(menuItem.getDreamMenuItem().getAllFilters().containsKey(filter)){
                 var ingredientTypes = menuItem.getDreamMenuItem().getFilter(filter);
                 if(ingredientTypes instanceof Collection<?>) allSubtypes.addAll((Collection<?>) ingredientTypes);
@@ -23,14 +433,296 @@ public class Menu {
         return allSubtypes;
     }
 
+    /**
+     * Finds the items matching the search, cheapest first (items with the same price in order of
+     * identifier). Only the part of the menu inside the search's price range is scanned.
+     *
+     * @param dreamMenuItem the search criteria
+     * @return the matching items
+     */
     public List<MenuItem> findMatch(DreamMenuItem dreamMenuItem){
+        MenuSnapshot snapshot = menu;
+        DreamMenuItem query = dreamMenuItem.encode(dictionary);
+        Filter[] order = statistics.plan(query).getOrder();
+        int[] range = priceRange(snapshot, query);
+        List<MenuItem> matching;
+        if(range[1]-range[0]<parallelThreshold) matching = findMatch(snapshot, query, order, range[0], range[1]);
+        else matching = pool.invoke(new SegmentedSearch((from, to) -> findMatch(snapshot, query, order, from, to), SEGMENT_SIZE, range[0], range[1]));
+        matching.addAll(findMatch(snapshot, query, order, range[2], snapshot.size()));
+        return matching;
+    }
+
+    /**
+     * Finds the items matching the search whose names or descriptions contain every word of a text
+     * query (see {@link TextIndex}), in the same order as {@link #findMatch(DreamMenuItem)}. Only the
+     * items containing the words are checked against the search.
+     *
+     * @param dreamMenuItem the search criteria
+     * @param text the words to look for; blank to search on the criteria alone
+     * @return the matching items
+     */
+    public List<MenuItem> findMatch(DreamMenuItem dreamMenuItem, String text){
+        if(text==null || text.isBlank()) return findMatch(dreamMenuItem);
+        TextState state = getTextState();
+        DreamMenuItem query = dreamMenuItem.encode(dictionary);
+        Filter[] order = statistics.plan(query).getOrder();
         List<MenuItem> matching = new ArrayList<>();
-        for(MenuItem menuItem: menu){
-            if(!menuItem.getDreamMenuItem().matches(dreamMenuItem)) continue;
+        // The index gives identifiers, resolved against the current items so prices are up to date;
+        // items whose text changed since it was built are checked against their new words instead
+        boolean changed = !state.changes.isEmpty();
+        for(long identifier: state.index.find(text)){
+            if(!changed || !state.changes.containsKey(identifier)) addIfMatches(matching, itemsById.get(identifier), query, order);
+        }
+        for(Map.Entry<Long, TextChange> change: state.changes.entrySet()){
+            Set<String> words = change.getValue().words;
+            if(words!=null && TextIndex.matches(words, text)) addIfMatches(matching, itemsById.get(change.getKey()), query, order);
+        }
+        // Indexed in the menu's order, so this is nearly sorted already unless many prices have changed
+        matching.sort(MenuSnapshot.ORDER);
+        return matching;
+    }
+
+    private static void addIfMatches(List<MenuItem> matching, MenuItem menuItem, DreamMenuItem query, Filter[] order){
+        // Null if removed since the index was built
+        if(menuItem==null) return;
+        if(menuItem.getPrice()<query.getMinPrice() || menuItem.getPrice()>query.getMaxPrice()) return;
+        if(menuItem.getDreamMenuItem().matches(query, order)) matching.add(menuItem);
+    }
+
+    /**
+     * Gets the index of the words in the items' names and descriptions, building it on first use.
+     * Building reads every item's text, so after loading a menu it is worth building before the first
+     * search. After that, changes to the items' text are kept beside the index and it is rebuilt in
+     * the background, so it may not reflect the latest changes; text searches take those into account.
+     *
+     * @return the text index
+     */
+    public TextIndex getTextIndex(){
+        return getTextState().index;
+    }
+
+    private TextState getTextState(){
+        TextState state = textState;
+        if(state!=null && state.index!=null) return state;
+        synchronized (textIndexLock){
+            state = textState;
+            if(state!=null && state.index!=null) return state;
+            return rebuildTextIndex();
+        }
+    }
+
+    /**
+     * Finds one page of the items matching the search, in the same order as {@link #findMatch(DreamMenuItem)}.
+     * The scan stops as soon as the page is full, so the cheapest few items are found without
+     * looking at the rest of the menu.
+     *
+     * @param dreamMenuItem the search criteria
+     * @param offset the number of matching items to skip
+     * @param limit the largest number of items to return
+     * @return the matching items on the page
+     */
+    public List<MenuItem> findMatch(DreamMenuItem dreamMenuItem, int offset, int limit){
+        MenuSnapshot snapshot = menu;
+        DreamMenuItem query = dreamMenuItem.encode(dictionary);
+        Filter[] order = statistics.plan(query).getOrder();
+        int[] range = priceRange(snapshot, query);
+        List<MenuItem> page = new ArrayList<>();
+        int skipped = 0;
+        for(int[] part: new int[][]{{range[0], range[1]}, {range[2], snapshot.size()}}){
+            for(MenuItem menuItem: snapshot.range(part[0], part[1])){
+                if(page.size()==limit) return page;
+                if(!menuItem.getDreamMenuItem().matches(query, order)) continue;
+                if(skipped++<offset) continue;
+                page.add(menuItem);
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Finds the positions in a snapshot that can match a search's price range.
+     *
+     * @param snapshot the snapshot
+     * @param dreamMenuItem the search criteria
+     * @return the first and after-last positions inside the range, and the first position of the items
+     *         priced NaN (which sort last but never fail a price check)
+     */
+    private static int[] priceRange(MenuSnapshot snapshot, DreamMenuItem dreamMenuItem){
+        double minPrice = dreamMenuItem.getMinPrice();
+        double maxPrice = dreamMenuItem.getMaxPrice();
+        int from = snapshot.countLeading(price -> price<minPrice);
+        int to = snapshot.countLeading(price -> !(price>maxPrice) && !Double.isNaN(price));
+        int unpriced = snapshot.countLeading(price -> !Double.isNaN(price));
+        return new int[]{from, Math.max(from, to), unpriced};
+    }
+
+    private List<MenuItem> findMatch(MenuSnapshot snapshot, DreamMenuItem dreamMenuItem, Filter[] order, int from, int to){
+        List<MenuItem> matching = new ArrayList<>();
+        for(MenuItem menuItem: snapshot.range(from, to)){
+            if(!menuItem.getDreamMenuItem().matches(dreamMenuItem, order)) continue;
             if(menuItem.getPrice()<dreamMenuItem.getMinPrice()|| menuItem.getPrice()>dreamMenuItem.getMaxPrice()) continue;
             matching.add(menuItem);
         }
         return matching;
     }
 
+    /**
+     * Suggests how to relax a search that finds nothing. In one pass over the menu every item is
+     * classified by the set of the search's constraints it fails (its price range counting as one), so
+     * the smallest sets of constraints standing between the search and some items are found without
+     * searching again for each combination. The filters are checked in the order the statistics plan
+     * them and the items in the price range first, so once the fewest constraints to drop is known
+     * an item is given up as soon as it fails more than that, and the pass costs little more than a
+     * search of the whole menu.
+     *
+     * @param dreamMenuItem the search criteria
+     * @param limit the largest number of alternative items per suggestion
+     * @return the suggestions dropping the fewest constraints, those freeing the most items first; empty
+     *         if the search finds items as it is or nothing can be found at all
+     */
+    public List<SearchSuggestion> suggestAlternatives(DreamMenuItem dreamMenuItem, int limit){
+        MenuSnapshot snapshot = menu;
+        DreamMenuItem query = dreamMenuItem.encode(dictionary);
+        Filter[] filters = query.getAllFilters().keySet().toArray(new Filter[0]);
+        // The bits of the filters, in the order they are checked
+        int[] bits = new int[filters.length];
+        Filter[] order = statistics.plan(query).getOrder();
+        for(int i=0;i<order.length;i++) bits[i] = 1<<Arrays.asList(filters).indexOf(order[i]);
+        int priceBit = 1<<filters.length;
+        int[] counts = new int[priceBit<<1];
+        List<List<MenuItem>> examples = new ArrayList<>(Collections.nCopies(counts.length, null));
+        // Of the items failing only on price, the last few below the range and the first few above it
+        Deque<MenuItem> below = new ArrayDeque<>();
+        List<MenuItem> above = new ArrayList<>();
+        // No item fails more constraints than this and still counts; it falls as items failing fewer are found
+        int fewest = Integer.MAX_VALUE;
+        int[] range = priceRange(snapshot, query);
+        // The items in the price range (and the unpriced ones) first, then those below and above it,
+        // so each failure set's examples still come cheapest first
+        for(int[] part: new int[][]{{range[0], range[1]}, {range[2], snapshot.size()}, {0, range[0]}, {range[1], range[2]}}){
+            for(MenuItem menuItem: snapshot.range(part[0], part[1])){
+                DreamMenuItem item = menuItem.getDreamMenuItem();
+                double price = menuItem.getPrice();
+                int failed = price<query.getMinPrice() || price>query.getMaxPrice() ? priceBit : 0;
+                int failures = failed==0 ? 0 : 1;
+                for(int i=0;i<bits.length && failures<=fewest;i++){
+                    if(item.matches(order[i], query)) continue;
+                    failed |= bits[i];
+                    failures++;
+                }
+                if(failures>fewest) continue;
+                // The search finds items as it is
+                if(failed==0) return new ArrayList<>();
+                fewest = failures;
+                counts[failed]++;
+                if(failed==priceBit){
+                    if(price<query.getMinPrice()){
+                        below.addLast(menuItem);
+                        if(below.size()>limit) below.removeFirst();
+                    }
+                    else if(above.size()<limit) above.add(menuItem);
+                    continue;
+                }
+                if(examples.get(failed)==null) examples.set(failed, new ArrayList<>());
+                if(examples.get(failed).size()<limit) examples.get(failed).add(menuItem);
+            }
+        }
+        if(fewest==Integer.MAX_VALUE) return new ArrayList<>();
+        List<Integer> relaxations = new ArrayList<>();
+        for(int failed=1;failed<counts.length;failed++) if(counts[failed]>0 && Integer.bitCount(failed)==fewest) relaxations.add(failed);
+        relaxations.sort(Comparator.comparingInt(failed -> -counts[failed]));
+        List<SearchSuggestion> suggestions = new ArrayList<>();
+        for(int failed: relaxations.subList(0, Math.min(MAX_SUGGESTIONS, relaxations.size()))){
+            List<MenuItem> alternatives = failed==priceBit ? nearestInPrice(below, above, query, limit) : examples.get(failed);
+            Map<Filter, Object> relaxed = dreamMenuItem.getAllFilters();
+            Set<Filter> dropped = EnumSet.noneOf(Filter.class);
+            for(int i=0;i<filters.length;i++){
+                if((failed & 1<<i)==0) continue;
+                dropped.add(filters[i]);
+                relaxed.remove(filters[i]);
+            }
+            double minPrice = dreamMenuItem.getMinPrice();
+            double maxPrice = dreamMenuItem.getMaxPrice();
+            boolean priceWidened = (failed & priceBit)!=0;
+            if(priceWidened){
+                for(MenuItem menuItem: alternatives){
+                    minPrice = Math.min(minPrice, menuItem.getPrice());
+                    maxPrice = Math.max(maxPrice, menuItem.getPrice());
+                }
+            }
+            suggestions.add(new SearchSuggestion(dropped, priceWidened, new DreamMenuItem(relaxed, minPrice, maxPrice), counts[failed], alternatives));
+        }
+        return suggestions;
+    }
+
+    /**
+     * Picks the items priced nearest a search's price range.
+     *
+     * @param below the nearest items priced below the range, cheapest first
+     * @param above the nearest items priced above the range, cheapest first
+     * @param query the search criteria
+     * @param limit the number of items to pick
+     * @return the nearest items, nearest first
+     */
+    private static List<MenuItem> nearestInPrice(Deque<MenuItem> below, List<MenuItem> above, DreamMenuItem query, int limit){
+        List<MenuItem> nearest = new ArrayList<>();
+        Iterator<MenuItem> down = below.descendingIterator();
+        Iterator<MenuItem> up = above.iterator();
+        MenuItem lower = down.hasNext() ? down.next() : null;
+        MenuItem upper = up.hasNext() ? up.next() : null;
+        while(nearest.size()<limit && (lower!=null || upper!=null)){
+            boolean takeLower = upper==null || (lower!=null && query.getMinPrice()-lower.getPrice() <= upper.getPrice()-query.getMaxPrice());
+            if(takeLower){
+                nearest.add(lower);
+                lower = down.hasNext() ? down.next() : null;
+            } else {
+                nearest.add(upper);
+                upper = up.hasNext() ? up.next() : null;
+            }
+        }
+        return nearest;
+    }
+
+    /**
+     * Counts, in a single pass over the menu, how many items each value of each filter would leave
+     * given the rest of the (partial) search, plus the number of matching items per price bucket.
+     * A negative max price means the search has no price range yet.
+     *
+     * @param dreamMenuItem the partial search
+     * @param priceBucketWidth the width of each price bucket in dollars
+     * @return the facet counts
+     */
+    public MenuFacets getFacets(DreamMenuItem dreamMenuItem, double priceBucketWidth){
+        MenuFacets facets = new MenuFacets(priceBucketWidth);
+        dreamMenuItem = dreamMenuItem.encode(dictionary);
+        boolean priceRange = dreamMenuItem.getMaxPrice()>=0;
+        Set<Filter> keys = dreamMenuItem.getAllFilters().keySet();
+        for(MenuItem menuItem: getSnapshot()){
+            DreamMenuItem item = menuItem.getDreamMenuItem();
+            Filter failed = null;
+            int failures = 0;
+            for(Filter key: keys){
+                if(item.matches(key, dreamMenuItem)) continue;
+                failed = key;
+                if(++failures>1) break;
+            }
+            if(failures>1) continue;
+            boolean inRange = !priceRange || (menuItem.getPrice()>=dreamMenuItem.getMinPrice() && menuItem.getPrice()<=dreamMenuItem.getMaxPrice());
+            if(failures==1){
+                // Only this filter stands in the way, so the item counts towards its other values
+                if(inRange) facets.countValue(failed, item);
+                continue;
+            }
+            facets.countPrice(menuItem.getPrice());
+            if(!inRange) continue;
+            facets.countMatch();
+            for(Filter filter: Filter.values()) facets.countValue(filter, item);
+        }
+        return facets;
+    }
+
+    public MenuFacets getFacets(DreamMenuItem dreamMenuItem){
+        return getFacets(dreamMenuItem, PRICE_BUCKET_WIDTH);
+    }
+
 }
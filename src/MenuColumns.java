@@ -0,0 +1,141 @@
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * A columnar (struct-of-arrays) alternative to {@link Menu}. Each attribute of the menu items lives in
+ * its own primitive array, so a full scan reads a few dense arrays instead of chasing a
+ * MenuItem, DreamMenuItem and map per item. MenuItem objects are only created for the results.
+ */
+public class MenuColumns {
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int SCAN_SEGMENT = 1 << 16;
+    private final MenuDictionary dictionary = new MenuDictionary();
+    private long[] identifiers = new long[INITIAL_CAPACITY];
+    private double[] prices = new double[INITIAL_CAPACITY];
+    private int[] attributes = new int[INITIAL_CAPACITY];
+    private int[] present = new int[INITIAL_CAPACITY];
+    private long[] sauces = new long[INITIAL_CAPACITY];
+    private long[] leafyGreens = new long[INITIAL_CAPACITY];
+    private String[] names = new String[INITIAL_CAPACITY];
+    private String[] descriptions = new String[INITIAL_CAPACITY];
+    private int size;
+    private ScanEngine scanEngine = ScanEngine.fromSystemProperty();
+    private int parallelThreshold = 4 * SCAN_SEGMENT;
+    private ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    /**
+     * Gets the dictionary that the bun and leafy greens codes of this menu refer to. Items added to
+     * this menu must have been encoded with it.
+     *
+     * @return the dictionary.
+     */
+    public MenuDictionary getDictionary() {
+        return dictionary;
+    }
+
+    /**
+     * Adds an item, copying its attributes into the columns.
+     *
+     * @param menuItem the item to add.
+     */
+    public void addItem(MenuItem menuItem) {
+        if (size == identifiers.length) grow();
+        DreamMenuItem dreamMenuItem = menuItem.getDreamMenuItem();
+        identifiers[size] = menuItem.getMenuItemIdentifier();
+        prices[size] = menuItem.getPrice();
+        attributes[size] = PackedAttributes.pack(dreamMenuItem, dictionary);
+        present[size] = PackedAttributes.presence(dreamMenuItem);
+        sauces[size] = PackedAttributes.sauceMask(dreamMenuItem.getFilter(Filter.SAUCE_S));
+        leafyGreens[size] = PackedAttributes.leafyGreensMask(dreamMenuItem, dictionary);
+        names[size] = menuItem.getMenuItemName();
+        descriptions[size] = menuItem.getDescription();
+        size++;
+    }
+
+    /**
+     * Grows every column by half.
+     */
+    private void grow() {
+        int capacity = identifiers.length + (identifiers.length >> 1);
+        identifiers = Arrays.copyOf(identifiers, capacity);
+        prices = Arrays.copyOf(prices, capacity);
+        attributes = Arrays.copyOf(attributes, capacity);
+        present = Arrays.copyOf(present, capacity);
+        sauces = Arrays.copyOf(sauces, capacity);
+        leafyGreens = Arrays.copyOf(leafyGreens, capacity);
+        names = Arrays.copyOf(names, capacity);
+        descriptions = Arrays.copyOf(descriptions, capacity);
+    }
+
+    /**
+     * Gets the number of items on the menu.
+     *
+     * @return the number of items.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Creates the MenuItem for the item at a position in the columns.
+     *
+     * @param index the position of the item.
+     * @return a new MenuItem with the item's details.
+     */
+    public MenuItem getItem(int index) {
+        Objects.checkIndex(index, size);
+        DreamMenuItem dreamMenuItem = PackedAttributes.unpack(attributes[index], present[index], sauces[index], leafyGreens[index], dictionary);
+        return new MenuItem(identifiers[index], names[index], prices[index], descriptions[index], dreamMenuItem);
+    }
+
+    /**
+     * Chooses how findMatch scans the columns. By default the vector engine is used when available.
+     *
+     * @param scanEngine the scan engine.
+     */
+    public void setScanEngine(ScanEngine scanEngine) {
+        this.scanEngine = scanEngine;
+    }
+
+    /**
+     * Configures parallel searching. Menus with fewer items than the threshold are scanned on the
+     * calling thread; larger ones are split into segments scanned on the given pool.
+     *
+     * @param parallelThreshold the smallest menu size to scan in parallel.
+     * @param pool the pool to scan on.
+     */
+    public void setParallelSearch(int parallelThreshold, ForkJoinPool pool) {
+        this.parallelThreshold = parallelThreshold;
+        this.pool = pool;
+    }
+
+    /**
+     * Finds the items matching the search criteria, with the same results as {@link Menu#findMatch}.
+     *
+     * @param dreamMenuItem the search criteria.
+     * @return the matching items, in the order they were added.
+     */
+    public List<MenuItem> findMatch(DreamMenuItem dreamMenuItem) {
+        PackedQuery query = new PackedQuery(dreamMenuItem, dictionary);
+        if (size < parallelThreshold) return findMatch(query, 0, size);
+        return pool.invoke(new SegmentedSearch((from, to) -> findMatch(query, from, to), SCAN_SEGMENT, 0, size));
+    }
+
+    /**
+     * Scans a range of positions in segments.
+     *
+     * @param query the compiled query.
+     * @param from the first position.
+     * @param to the position after the last.
+     * @return the matching items, in order.
+     */
+    private List<MenuItem> findMatch(PackedQuery query, int from, int to) {
+        List<MenuItem> matching = new ArrayList<>();
+        int[] hits = new int[Math.min(to - from, SCAN_SEGMENT)];
+        for (int start = from; start < to; start += SCAN_SEGMENT) {
+            int count = scanEngine.scan(query, attributes, present, sauces, leafyGreens, prices, start, Math.min(to, start + SCAN_SEGMENT), hits);
+            for (int i = 0; i < count; i++) matching.add(getItem(hits[i]));
+        }
+        return matching;
+    }
+}
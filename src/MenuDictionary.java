@@ -0,0 +1,162 @@
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps each distinct bun and leafy green on the menu to a small integer code, so that items can share
+ * one copy of each string and matching can compare codes (buns) or bitmasks (leafy greens) instead of
+ * hashing strings. It is safe to use from several threads: searches look values up while new items
+ * are being encoded.
+ */
+public class MenuDictionary {
+    private static final int MAX_LEAFY_GREENS = Long.SIZE;
+    private final Map<String, Integer> bunCodes = new HashMap<>();
+    private final List<String> buns = new ArrayList<>();
+    private final Map<String, Integer> leafyGreensCodes = new HashMap<>();
+    private final List<String> leafyGreens = new ArrayList<>();
+    // Read without the lock, since every item rebuilt from the columnar stores decodes its leafy greens
+    private final Map<Long, Set<String>> leafyGreensSets = new ConcurrentHashMap<>();
+    private final Map<DreamMenuItem, DreamMenuItem> profiles = new HashMap<>();
+
+    /**
+     * Gets the code for a bun, adding it to the dictionary if it is new.
+     *
+     * @param bun the bun.
+     * @return the code of the bun.
+     */
+    public synchronized int encodeBun(String bun) {
+        return bunCodes.computeIfAbsent(bun, b -> {
+            buns.add(b);
+            return buns.size() - 1;
+        });
+    }
+
+    /**
+     * Looks up the code for a bun without adding it.
+     *
+     * @param bun the bun.
+     * @return the code of the bun, or -1 if no item on the menu has it.
+     */
+    public synchronized int getBunCode(Object bun) {
+        Integer code = bunCodes.get(bun);
+        return code == null ? -1 : code;
+    }
+
+    /**
+     * Gets the bun for a code.
+     *
+     * @param code the code of the bun.
+     * @return the shared copy of the bun's name.
+     */
+    public synchronized String decodeBun(int code) {
+        return buns.get(code);
+    }
+
+    /**
+     * Gets the bitmask for a set of leafy greens, adding any new ones to the dictionary.
+     *
+     * @param greens the leafy greens.
+     * @return the bitmask with one bit set per leafy green.
+     * @throws IllegalArgumentException if the menu has more distinct leafy greens than fit in the mask.
+     */
+    public synchronized long encodeLeafyGreens(Collection<String> greens) {
+        long mask = 0;
+        for (String green : greens) {
+            Integer code = leafyGreensCodes.get(green);
+            if (code == null) {
+                if (leafyGreens.size() == MAX_LEAFY_GREENS) {
+                    throw new IllegalArgumentException("More than " + MAX_LEAFY_GREENS + " distinct leafy greens: " + green);
+                }
+                code = leafyGreens.size();
+                leafyGreens.add(green);
+                leafyGreensCodes.put(green, code);
+            }
+            mask |= 1L << code;
+        }
+        return mask;
+    }
+
+    /**
+     * Looks up the bitmask for a set of leafy greens without adding them. Greens no item has are left out.
+     *
+     * @param greens the leafy greens.
+     * @return the bitmask with one bit set per known leafy green.
+     */
+    public synchronized long getLeafyGreensMask(Collection<?> greens) {
+        long mask = 0;
+        for (Object green : greens) {
+            Integer code = leafyGreensCodes.get(green);
+            if (code != null) mask |= 1L << code;
+        }
+        return mask;
+    }
+
+    /**
+     * Gets the shared, unmodifiable set of leafy greens for a bitmask. Only the first decode of each
+     * mask takes the lock.
+     *
+     * @param mask the bitmask.
+     * @return the set of leafy greens.
+     */
+    public Set<String> decodeLeafyGreens(long mask) {
+        Set<String> greens = leafyGreensSets.get(mask);
+        return greens != null ? greens : addLeafyGreensSet(mask);
+    }
+
+    /**
+     * Makes the shared set of leafy greens for a bitmask decoded for the first time.
+     *
+     * @param mask the bitmask.
+     * @return the set of leafy greens.
+     */
+    private synchronized Set<String> addLeafyGreensSet(long mask) {
+        return leafyGreensSets.computeIfAbsent(mask, m -> {
+            Set<String> greens = new LinkedHashSet<>();
+            for (long bits = m; bits != 0; bits &= bits - 1) greens.add(leafyGreens.get(Long.numberOfTrailingZeros(bits)));
+            return Collections.unmodifiableSet(greens);
+        });
+    }
+
+    /**
+     * Gets the shared copy of an attribute profile, so that items with identical attributes hold one
+     * immutable DreamMenuItem between them. The first profile of its kind becomes the shared copy,
+     * encoded in this dictionary. Profiles stay in the dictionary for as long as the menu does.
+     *
+     * @param dreamMenuItem the attributes.
+     * @return the shared copy, equal to the given attributes.
+     */
+    public synchronized DreamMenuItem intern(DreamMenuItem dreamMenuItem) {
+        DreamMenuItem shared = profiles.get(dreamMenuItem);
+        if (shared == null) {
+            shared = dreamMenuItem.encode(this);
+            profiles.put(shared, shared);
+        }
+        return shared;
+    }
+
+    /**
+     * Gets the number of distinct attribute profiles shared through {@link #intern(DreamMenuItem)}.
+     *
+     * @return the number of profiles.
+     */
+    public synchronized int getProfileCount() {
+        return profiles.size();
+    }
+
+    /**
+     * Gets the number of distinct buns.
+     *
+     * @return the number of buns.
+     */
+    public synchronized int getBunCount() {
+        return buns.size();
+    }
+
+    /**
+     * Gets the number of distinct leafy greens.
+     *
+     * @return the number of leafy greens.
+     */
+    public synchronized int getLeafyGreensCount() {
+        return leafyGreens.size();
+    }
+}
@@ -0,0 +1,116 @@
+import java.util.*;
+
+/**
+ * Drill-down counts for a (partial) search. For every filter, each value records how many menu items
+ * would be left if the customer picked that value while keeping all of their other choices. Price
+ * buckets record how many items match the filters, ignoring the price range.
+ */
+public class MenuFacets {
+    private final Map<Filter, Map<Object, Integer>> valueCounts = new EnumMap<>(Filter.class);
+    private final Map<Filter, Integer> unconstrainedCounts = new EnumMap<>(Filter.class);
+    private final SortedMap<Double, Integer> priceBuckets = new TreeMap<>();
+    private final double priceBucketWidth;
+    private int matchCount;
+
+    /**
+     * Creates an empty set of facet counts.
+     *
+     * @param priceBucketWidth the width (in dollars) of each price bucket.
+     */
+    public MenuFacets(double priceBucketWidth) {
+        this.priceBucketWidth = priceBucketWidth;
+        for (Filter filter : Filter.values()) {
+            valueCounts.put(filter, new LinkedHashMap<>());
+            unconstrainedCounts.put(filter, 0);
+        }
+    }
+
+    /**
+     * Records an item that would be left if the given filter were set to any of the item's values.
+     *
+     * @param filter the filter being drilled into.
+     * @param dreamMenuItem the attributes of the item.
+     */
+    void countValue(Filter filter, DreamMenuItem dreamMenuItem) {
+        if (!dreamMenuItem.hasFilter(filter)) {
+            // Items without the filter (e.g. a salad's bun) are left whatever value is picked
+            unconstrainedCounts.merge(filter, 1, Integer::sum);
+            return;
+        }
+        Object value = dreamMenuItem.getFilter(filter);
+        Map<Object, Integer> counts = valueCounts.get(filter);
+        if (value instanceof Collection<?>) {
+            for (Object element : (Collection<?>) value) counts.merge(element, 1, Integer::sum);
+        } else {
+            counts.merge(value, 1, Integer::sum);
+        }
+    }
+
+    /**
+     * Records an item that matches all filters (the price range aside) and falls into a price bucket.
+     *
+     * @param price the price of the item.
+     */
+    void countPrice(double price) {
+        priceBuckets.merge(Math.floor(price / priceBucketWidth) * priceBucketWidth, 1, Integer::sum);
+    }
+
+    /**
+     * Records an item that matches the whole search.
+     */
+    void countMatch() {
+        matchCount++;
+    }
+
+    /**
+     * Gets the number of items that would be left if the given filter were set to the given value.
+     *
+     * @param filter the filter.
+     * @param value the value of the filter (a single element for sauces/leafy greens).
+     * @return the number of items left.
+     */
+    public int getCount(Filter filter, Object value) {
+        return valueCounts.get(filter).getOrDefault(value, 0) + unconstrainedCounts.get(filter);
+    }
+
+    /**
+     * Gets the count for every value of a filter that leaves at least one item.
+     *
+     * @param filter the filter.
+     * @return a map of each value to the number of items left.
+     */
+    public Map<Object, Integer> getCounts(Filter filter) {
+        Map<Object, Integer> counts = new LinkedHashMap<>();
+        for (Map.Entry<Object, Integer> entry : valueCounts.get(filter).entrySet()) {
+            counts.put(entry.getKey(), entry.getValue() + unconstrainedCounts.get(filter));
+        }
+        return counts;
+    }
+
+    /**
+     * Gets the number of matching items in each price bucket.
+     *
+     * @return a sorted map from the lower bound of each non-empty bucket to its count.
+     */
+    public SortedMap<Double, Integer> getPriceBuckets() {
+        return Collections.unmodifiableSortedMap(priceBuckets);
+    }
+
+    /**
+     * Gets the width of the price buckets.
+     *
+     * @return the bucket width in dollars.
+     */
+    public double getPriceBucketWidth() {
+        return priceBucketWidth;
+    }
+
+    /**
+     * Gets the number of items matching the whole search, including the price range.
+     *
+     * @return the number of matching items.
+     */
+    public int getMatchCount() {
+        return matchCount;
+    }
+}
@@ -1,4 +1,5 @@
 import java.text.DecimalFormat;
+import java.util.Objects;
 
 /**
  * Created by Dr Andreas Shepley for COSC120 on 03/07/2023
@@ -12,6 +13,9 @@ public class MenuItem {
     private final String description;
     private final double price;
     private final DreamMenuItem dreamMenuItem;
+    // Where the name and description are kept instead, if they aren't held on the heap
+    private final DescriptionStore descriptions;
+    private final long textOffset;
 
     //constructor/s
     public MenuItem(long menuItemIdentifier, String menuItemName, double price, String description, DreamMenuItem dreamMenuItem) {
@@ -20,6 +24,37 @@ public class MenuItem {
         this.price = price;
         this.description = description;
         this.dreamMenuItem=dreamMenuItem;
+        this.descriptions = null;
+        this.textOffset = -1;
+    }
+
+    /**
+     * Creates an item whose name and description are read from a description store when needed.
+     *
+     * @param menuItemIdentifier the identifier of the item
+     * @param price the price of the item
+     * @param descriptions the store holding the item's name and description
+     * @param textOffset the offset of the name and description in the store
+     * @param dreamMenuItem the attributes of the item
+     */
+    public MenuItem(long menuItemIdentifier, double price, DescriptionStore descriptions, long textOffset, DreamMenuItem dreamMenuItem) {
+        this.menuItemIdentifier = menuItemIdentifier;
+        this.menuItemName = null;
+        this.price = price;
+        this.description = null;
+        this.dreamMenuItem = dreamMenuItem;
+        this.descriptions = descriptions;
+        this.textOffset = textOffset;
+    }
+
+    private MenuItem(MenuItem menuItem, double price, DreamMenuItem dreamMenuItem) {
+        this.menuItemIdentifier = menuItem.menuItemIdentifier;
+        this.menuItemName = menuItem.menuItemName;
+        this.price = price;
+        this.description = menuItem.description;
+        this.dreamMenuItem = dreamMenuItem;
+        this.descriptions = menuItem.descriptions;
+        this.textOffset = menuItem.textOffset;
     }
 
     public MenuItem(DreamMenuItem dreamMenuItem) {
@@ -28,6 +63,8 @@ public class MenuItem {
         this.price = -1;
         this.description = "custom - see preferences";
         this.dreamMenuItem=dreamMenuItem;
+        this.descriptions = null;
+        this.textOffset = -1;
     }
 
     //getters
@@ -35,16 +72,46 @@ public class MenuItem {
         return menuItemIdentifier;
     }
     public String getMenuItemName() {
-        return menuItemName;
+        return descriptions == null ? menuItemName : descriptions.getName(textOffset);
     }
     public String getDescription() {
-        return description;
+        return descriptions == null ? description : descriptions.getDescription(textOffset);
     }
     public double getPrice() {
         return price;
     }
     public DreamMenuItem getDreamMenuItem(){ return dreamMenuItem;}
 
+    /**
+     * Gets the name and description together, reading them past the description store's cache if
+     * they are kept in one, for code that reads the text of many items once (e.g. to index it)
+     *
+     * @return the name and the description
+     */
+    String[] getText() {
+        return descriptions == null ? new String[]{menuItemName, description} : descriptions.readUncached(textOffset);
+    }
+
+    /**
+     * Gets a copy of this item with another price, keeping the name and description where they are.
+     *
+     * @param price the new price
+     * @return the repriced item
+     */
+    public MenuItem withPrice(double price) {
+        return new MenuItem(this, price, dreamMenuItem);
+    }
+
+    /**
+     * Gets a copy of this item with other (equal) attributes, e.g. a menu's shared copy of them.
+     *
+     * @param dreamMenuItem the attributes
+     * @return the item with the given attributes
+     */
+    public MenuItem withDreamMenuItem(DreamMenuItem dreamMenuItem) {
+        return new MenuItem(this, price, dreamMenuItem);
+    }
+
     /**
      * Get the information about a menu item in HTML format for display in a JLabel.
      *
@@ -90,4 +157,30 @@ public class MenuItem {
         // Return the final formatted string
         return output.toString();
     }
+
+    /**
+     * Compares every detail of the item, so a menu can tell a re-added item from a changed one.
+     *
+     * @param o the object to compare with
+     * @return true if o is a MenuItem with the same identifier, name, price, description and attributes
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof MenuItem other) || menuItemIdentifier != other.menuItemIdentifier
+                || Double.compare(price, other.price) != 0 || !Objects.equals(dreamMenuItem, other.dreamMenuItem)) return false;
+        // Items sharing a text in a description store are equal without reading it
+        if (descriptions != null && descriptions == other.descriptions && textOffset == other.textOffset) return true;
+        return Objects.equals(getMenuItemName(), other.getMenuItemName()) && Objects.equals(getDescription(), other.getDescription());
+    }
+
+    /**
+     * Hashes the identifier, price and attributes, leaving out the text so it needn't be read from disk.
+     *
+     * @return the hash code
+     */
+    @Override
+    public int hashCode() {
+        return Objects.hash(menuItemIdentifier, price, dreamMenuItem);
+    }
 }
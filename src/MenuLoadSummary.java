@@ -0,0 +1,103 @@
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Reports the outcome of a lenient menu load: how many lines were read, how many items were loaded,
+ * and how many lines were quarantined and why.
+ */
+public class MenuLoadSummary {
+    private final Path quarantineFile;
+    private final Map<String, Integer> quarantinedByReason = new TreeMap<>();
+    private long linesRead;
+    private long itemsLoaded;
+    private long linesQuarantined;
+
+    /**
+     * Creates an empty summary.
+     *
+     * @param quarantineFile the file the bad lines are written to.
+     */
+    MenuLoadSummary(Path quarantineFile) {
+        this.quarantineFile = quarantineFile;
+    }
+
+    /**
+     * Counts a line read from the menu file, apart from the header.
+     */
+    void countLine() {
+        linesRead++;
+    }
+
+    /**
+     * Counts an item loaded.
+     */
+    void countItem() {
+        itemsLoaded++;
+    }
+
+    /**
+     * Counts a line quarantined.
+     *
+     * @param reason why the line couldn't be loaded.
+     */
+    void countQuarantined(String reason) {
+        linesQuarantined++;
+        quarantinedByReason.merge(reason, 1, Integer::sum);
+    }
+
+    /**
+     * Gets the file the bad lines were written to. It only exists if some line was quarantined.
+     *
+     * @return the quarantine file.
+     */
+    public Path getQuarantineFile() {
+        return quarantineFile;
+    }
+
+    /**
+     * Gets the number of lines read, not counting the header.
+     *
+     * @return the number of lines.
+     */
+    public long getLinesRead() {
+        return linesRead;
+    }
+
+    /**
+     * Gets the number of items loaded.
+     *
+     * @return the number of items.
+     */
+    public long getItemsLoaded() {
+        return itemsLoaded;
+    }
+
+    /**
+     * Gets the number of lines quarantined.
+     *
+     * @return the number of lines.
+     */
+    public long getLinesQuarantined() {
+        return linesQuarantined;
+    }
+
+    /**
+     * Gets the number of lines quarantined for each reason.
+     *
+     * @return the counts, by reason.
+     */
+    public Map<String, Integer> getQuarantinedByReason() {
+        return Collections.unmodifiableMap(quarantinedByReason);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder summary = new StringBuilder("Read " + linesRead + " lines, loaded " + itemsLoaded + " items");
+        if (linesQuarantined == 0) return summary.append('.').toString();
+        summary.append(", quarantined ").append(linesQuarantined).append(" lines to ").append(quarantineFile).append(':');
+        quarantinedByReason.forEach((reason, count) -> summary.append("\n\t").append(reason).append(": ").append(count));
+        return summary.toString();
+    }
+}
@@ -1,304 +1,495 @@
-import javax.swing.*;
-import java.awt.event.ComponentAdapter;
-import java.awt.event.ComponentEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
-import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
 
 public class MenuSearcher {
     /**
      * Created by Dr Andreas Shepley for COSC120 on 03/07/2023
      */
     private static final String filePath = "./menu.txt";
-    private static Menu menu;
-    private static SearchInterface searchInterface;
-    private static ResultInterface resultInterface;
-    private static OrderInterface orderInterface;
+    private static final int MENU_BUFFER_SIZE = 1 << 16;
+    private static final int IMAGE_CACHE_SIZE = 256;
+    // Room left in the image cache for the images the windows show besides the warmed pictures (the logo and previews)
+    private static final int UNWARMED_IMAGES = 16;
+    private static final String IMAGE_DIRECTORY = "images";
+    private static final OrderWriter orderWriter = new OrderWriter(Path.of("."), Path.of("./orders"));
 
     /**
      * Entry point for the application. This method initializes the system by loading
-     * menu items and then launching the search interface.
+     * menu items and then launching the search interface. With -Dmenu.kiosks=N, N independent
+     * kiosk sessions share the menu, images and order writer of this one JVM. The item pictures are
+     * read into the image cache in the background; with -Dmenu.thumbnailCache=directory their
+     * thumbnails are also kept there for the next run.
      *
-     * @param args Command-line arguments (not used).
+     * @param args Command-line arguments; "--batch" runs searches without the GUI (see {@link BatchSearcher}),
+     *             "--replay" replays recorded sessions (see {@link SessionReplayer}), "--thumbnail-benchmark"
+     *             times the ways of reading the pictures (see {@link ThumbnailBenchmark}) and
+     *             "--check-allocation" checks that matching allocates nothing (see {@link MatchAllocationCheck})
+     *             and "--scan-benchmark" compares the scan engines (see {@link ScanEngineBenchmark}).
      */
     public static void main(String[] args) {
-        // Load the menu items from a file located at 'filePath'
-        menu = loadMenu(filePath);
+        // Run headless when asked, without creating any windows
+        if (args.length > 0 && args[0].equals("--batch")) {
+            BatchSearcher.main(Arrays.copyOfRange(args, 1, args.length), filePath);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--replay")) {
+            SessionReplayer.main(Arrays.copyOfRange(args, 1, args.length), filePath);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--check-allocation")) {
+            MatchAllocationCheck.main(Arrays.copyOfRange(args, 1, args.length), filePath);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--scan-benchmark")) {
+            ScanEngineBenchmark.main(Arrays.copyOfRange(args, 1, args.length), filePath);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--thumbnail-benchmark")) {
+            ThumbnailBenchmark.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        long start = System.nanoTime();
 
-        // Initialize a new search interface with the loaded menu
-        searchInterface = new SearchInterface(menu);
+        // Load the menu items from a file located at 'filePath', in the background while the GUI is built
+        CompletableFuture<Menu> menu = CompletableFuture.supplyAsync(() -> loadMenu(filePath));
+        menu.thenRun(() -> logStartup("Menu loaded", start));
+
+        // With -Dmenu.recordSessions=path, what customers do is logged there for replaying (see SessionReplayer)
+        SessionRecorder sessionRecorder = null;
+        String recording = System.getProperty("menu.recordSessions");
+        if (recording != null) {
+            try {
+                sessionRecorder = new SessionRecorder(Path.of(recording));
+            } catch (UncheckedIOException io) {
+                System.out.println("Sessions will not be recorded. \nError message: "+io.getMessage());
+            }
+        }
 
-        // Start the search GUI for users to find menu items
-        handleSearchGUI();
+        // Start a session per kiosk; each shows its search window, which shows the menu once it has loaded
+        int kiosks = Math.max(1, Integer.getInteger("menu.kiosks", 1));
+        String thumbnailCache = System.getProperty("menu.thumbnailCache");
+        ImageCache imageCache = new ImageCache(IMAGE_CACHE_SIZE, new ThumbnailLoader(thumbnailCache == null ? null : Path.of(thumbnailCache)));
+        warmImages(imageCache, start);
+        for (int i = 0; i < kiosks; i++) {
+            KioskSession session = new KioskSession(menu, imageCache, orderWriter, sessionRecorder, kiosks > 1);
+            session.start();
+            // Report when the first frame has been shown
+            if (i == 0) session.getSearchInterface().getFrame().addWindowListener(new WindowAdapter() {
+                @Override
+                public void windowOpened(WindowEvent e) {
+                    logStartup("First frame shown", start);
+                }
+            });
+        }
     }
 
     /**
-     * Handles the search GUI for finding menu items based on certain criteria.
-     * This method initializes and shows the SearchInterface window where the user can enter their search criteria.
-     * It also adds an event listener to handle actions when the SearchInterface window is closed.
+     * Reads the item pictures into the image cache in the background, at the sizes the result and
+     * order windows show them. Both sizes share the cache, so each gets the same share of it; with
+     * more pictures than fit, the first ones are read.
+     *
+     * @param imageCache the image cache.
+     * @param start the startup time, from System.nanoTime().
      */
-    public static void handleSearchGUI() {
-        // Display the search interface
-        searchInterface.show();
-
-        // Add a ComponentListener to the SearchInterface's frame to handle window events
-        searchInterface.getFrame().addComponentListener(new ComponentAdapter() {
-            /**
-             * Invoked when the component has been made invisible.
-             *
-             * @param e The ComponentEvent object.
-             */
-            @Override
-            public void componentHidden(ComponentEvent e) {
-                // Create a DreamMenuItem object using the search criteria and price range obtained from the SearchInterface
-                DreamMenuItem dreamMenuItem = new DreamMenuItem(
-                        searchInterface.getFilterMap(),
-                        Double.parseDouble(searchInterface.getMinPrice()),
-                        Double.parseDouble(searchInterface.getMaxPrice())
-                );
-
-                // Find menu items that match the given DreamMenuItem's attributes
-                List<MenuItem> matching = menu.findMatch(dreamMenuItem);
-
-                // Check if any matching menu items are found
-                if (!matching.isEmpty()) {
-                    // If matches are found, display them in the Results GUI
-                    handleResultsGUI(matching);
-                } else {
-                    // If no matches are found, show an error dialog and re-open the Search Interface
-                    JOptionPane.showMessageDialog(null, "No Results Found", "Error", JOptionPane.ERROR_MESSAGE);
-                    searchInterface.show();
-                }
-            }
-        });
+    private static void warmImages(ImageCache imageCache, long start) {
+        List<String> pictures;
+        try {
+            pictures = ThumbnailBenchmark.pictures(Path.of(IMAGE_DIRECTORY));
+        } catch (UncheckedIOException io) {
+            System.out.println("Pictures could not be read ahead. \nError message: "+io.getMessage());
+            return;
+        }
+        // Otherwise the second size would push the first out of the cache as it is read
+        List<String> warmed = pictures.subList(0, Math.min(pictures.size(), (IMAGE_CACHE_SIZE-UNWARMED_IMAGES)/2));
+        CompletableFuture.allOf(
+                imageCache.warm(warmed, ResultInterface.PREVIEW_WIDTH, ResultInterface.PREVIEW_HEIGHT),
+                imageCache.warm(warmed, OrderInterface.PREVIEW_WIDTH, OrderInterface.PREVIEW_HEIGHT)
+        ).thenRun(() -> logStartup("Pictures read", start));
     }
 
     /**
-     * Handles the Results GUI.
-     * This method initializes and shows the ResultInterface window,
-     * which displays a list of menu items that match the user's search.
-     * It also sets up an event listener to perform actions when the ResultInterface window is closed.
+     * Prints the time since startup, if -Dmenu.logStartup=true.
      *
-     * @param dreamMenuItem A list of MenuItem objects that match the user's search criteria.
+     * @param event what has happened.
+     * @param start the startup time, from System.nanoTime().
      */
-    public static void handleResultsGUI(List<MenuItem> dreamMenuItem) {
-        // Create and show the ResultInterface window with the matching menu items.
-        resultInterface = new ResultInterface(dreamMenuItem);
-        resultInterface.show();
-
-        // Add a ComponentListener to the ResultInterface's frame.
-        resultInterface.getFrame().addComponentListener(new ComponentAdapter() {
-            /**
-             * Called when the ResultInterface window is hidden.
-             *
-             * @param e The ComponentEvent.
-             */
-            public void componentHidden(ComponentEvent e) {
-                // Check the state of the ResultInterface to determine the next action.
-                if (Objects.equals(resultInterface.getState(), "Continue")) {
-                    // If the state is "Continue", proceed to handle the order.
-                    handleOrderGUI(resultInterface.getSelectedMenuItem());
-                } else {
-                    // Otherwise, re-show the SearchInterface for a new search.
-                    searchInterface.show();
-                }
-            }
-        });
+    private static void logStartup(String event, long start) {
+        if (Boolean.getBoolean("menu.logStartup")) System.out.println(event+" after "+(System.nanoTime()-start)/1_000_000+" ms");
     }
 
     /**
-     * Handles the GUI flow for processing an order.
+     * Gets the store of submitted orders, opening it on first use.
      *
-     * @param menuItem The menu item to be ordered.
+     * @return the order store.
      */
-    public static void handleOrderGUI(MenuItem menuItem) {
-        // Create the OrderInterface and display it.
-        orderInterface = new OrderInterface(menuItem);
-        orderInterface.show();
-
-        // Add a listener to handle when the frame is hidden.
-        orderInterface.getFrame().addComponentListener(new ComponentAdapter() {
-            /**
-             * Called when the frame is hidden. Submits the order and terminates the program.
-             *
-             * @param e The ComponentEvent triggering this method.
-             */
-            public void componentHidden(ComponentEvent e) {
-                submitOrder(orderInterface.getGeek(), menuItem, orderInterface.getSpecialRequests());
-                JOptionPane.showMessageDialog(null, "Order Has Been Placed", "Confirmation", JOptionPane.INFORMATION_MESSAGE);
-                System.exit(0);
-            }
-        });
+    public static OrderStore getOrderStore() {
+        return orderWriter.getOrderStore();
     }
 
-    public static void submitOrder(Geek geek, MenuItem menuItem, String specialRequests) {
-        String filePath = geek.getName().replace(" ","_")+"_"+menuItem.getMenuItemIdentifier()+".txt";
-        Path path = Path.of(filePath);
-        String lineToWrite = "Order details:\n\t" +
-                "Name: "+geek.getName()+
-                " (0"+geek.getOrderNumber()+")";
-        if(menuItem.getMenuItemIdentifier()==0) lineToWrite+="\n\nCUSTOM ORDER...\n"+menuItem.getMenuItemInformation();
-        else lineToWrite+="\n\tItem: "+menuItem.getMenuItemName()+ " ("+menuItem.getMenuItemIdentifier()+")";
-        lineToWrite+="\n\nCustomisation Requests:\n"+specialRequests;
+    /**
+     * Gets the running statistics of the orders submitted so far.
+     *
+     * @return the order analytics.
+     */
+    public static OrderAnalytics getOrderAnalytics() {
+        return orderWriter.getOrderAnalytics();
+    }
 
-        try {
-            Files.writeString(path, lineToWrite);
-        }catch (IOException io){
-            System.out.println("Order could not be placed. \nError message: "+io.getMessage());
-            System.exit(0);
-        }
+    /**
+     * Gets the ranker scoring items by their recent orders.
+     *
+     * @return the popularity ranker.
+     */
+    public static PopularityRanker getPopularityRanker() {
+        return orderWriter.getPopularityRanker();
     }
 
+    /**
+     * Loads the menu the way the command line asks: leniently with -Dmenu.lenient=true, and with the
+     * names and descriptions on disk with -Dmenu.descriptionsOnDisk=true, in a temporary file in the
+     * directory given by -Dmenu.descriptionsDirectory (or the system's temporary directory).
+     *
+     * @param filePath the path of the menu file.
+     * @return the menu.
+     * @throws UncheckedIOException if the menu file can't be read (or a lenient load's quarantine file
+     *                              written, or the descriptions file created).
+     * @throws IllegalArgumentException if a line can't be parsed and the load isn't lenient.
+     */
     public static Menu loadMenu(String filePath) {
-        Menu menu = new Menu();
-        Path path = Path.of(filePath);
-        List<String> fileContents = null;
+        // With -Dmenu.descriptionsOnDisk=true names and descriptions are kept in a temporary file, not on the heap
+        String descriptionsDirectory = System.getProperty("menu.descriptionsDirectory");
+        DescriptionStore descriptions = Boolean.getBoolean("menu.descriptionsOnDisk")
+                ? DescriptionStore.createTemporary(descriptionsDirectory == null ? null : Path.of(descriptionsDirectory)) : null;
         try {
-            fileContents = Files.readAllLines(path);
-        }catch (IOException io){
-            System.out.println("File could not be found");
-            System.exit(0);
-        }
-
-        for(int i=1;i<fileContents.size();i++){
-
-            String[] info = fileContents.get(i).split("\\[");
-            String[] singularInfo = info[0].split(",");
-
-            String leafyGreensRaw = info[1].replace("]","");
-            String saucesRaw = info[2].replace("]","");
-            String description = info[3].replace("]","");
-
-            long menuItemIdentifier = 0;
-            try{
-                menuItemIdentifier = Long.parseLong(singularInfo[0]);
-            }catch (NumberFormatException n) {
-                System.out.println("Error in file. Menu item identifier could not be parsed for item on line "+(i+1)+". Terminating. \nError message: "+n.getMessage());
-                System.exit(0);
-            }
-
-            Type type = null;
-            try{
-                type = Type.valueOf(singularInfo[1].toUpperCase().strip());
-            }catch (IllegalArgumentException e){
-                System.out.println("Error in file. Type data could not be parsed for item on line "+(i+1)+". Terminating. \nError message: "+e.getMessage());
-                System.exit(0);
-            }
-
-            String menuItemName = singularInfo[2];
-
-            double price = 0;
-            try{
-                price = Double.parseDouble(singularInfo[3]);
-            }catch (NumberFormatException n){
-                System.out.println("Error in file. Price could not be parsed for item on line "+(i+1)+". Terminating. \nError message: "+n.getMessage());
-                System.exit(0);
+            // With -Dmenu.lenient=true bad lines are set aside instead of stopping the program
+            if (Boolean.getBoolean("menu.lenient")) {
+                Menu menu = new Menu();
+                System.out.println(loadMenu(filePath, menu, Path.of(filePath+".quarantine"), descriptions));
+                return menu;
             }
-
-            String bun = singularInfo[4].toLowerCase().strip();
-
-            Meat meat = null;
-            try {
-                meat = Meat.valueOf(singularInfo[5].toUpperCase());
-            }catch (IllegalArgumentException e){
-                System.out.println("Error in file. Meat data could not be parsed for item on line "+(i+1)+". Terminating. \nError message: "+e.getMessage());
-                System.exit(0);
+            return loadMenu(filePath, descriptions);
+        } catch (RuntimeException e) {
+            // No menu will use the stored descriptions, so their file goes now
+            if (descriptions != null) {
+                try {
+                    descriptions.close();
+                } catch (IOException io) {
+                    e.addSuppressed(io);
+                }
             }
+            throw e;
+        }
+    }
 
-            boolean cheese = false;
-            String cheeseRaw = singularInfo[6].strip().toUpperCase();
-            if(cheeseRaw.equals("YES")) cheese = true;
+    /**
+     * Loads the menu, keeping the items' names and descriptions in a description store.
+     *
+     * @param filePath the path of the menu file.
+     * @param descriptions the store for the names and descriptions, or null to keep them on the heap.
+     * @return the menu.
+     * @throws UncheckedIOException if the menu file can't be read.
+     * @throws IllegalArgumentException if a line can't be parsed.
+     */
+    public static Menu loadMenu(String filePath, DescriptionStore descriptions) {
+        Menu menu = new Menu();
+        List<MenuItem> menuItems = new ArrayList<>();
+        readMenu(filePath, menu.getDictionary(), collect(menuItems, descriptions), null);
+        menu.addItems(menuItems);
+        menu.getTextIndex();
+        return menu;
+    }
 
-            boolean pickles = false;
-            String pickleRaw = singularInfo[7].strip().toUpperCase();
-            if(pickleRaw.equals("YES")) pickles = true;
+    /**
+     * Loads the menu leniently: a line that can't be parsed is written, with its line number and the
+     * reason, to the quarantine file and skipped, and loading carries on with the next line. The
+     * summary counts the lines by the kind of problem (e.g. "Price could not be parsed"); the details
+     * of each are in the quarantine file.
+     *
+     * @param filePath the path of the menu file.
+     * @param menu the menu to add the items to.
+     * @param quarantineFile the file to write bad lines to; only created if there are any, and any left
+     *                       by an earlier load is deleted.
+     * @return a summary of the load.
+     * @throws UncheckedIOException if the menu file can't be read or the quarantine file written.
+     */
+    public static MenuLoadSummary loadMenu(String filePath, Menu menu, Path quarantineFile) {
+        return loadMenu(filePath, menu, quarantineFile, null);
+    }
 
-            boolean cucumber = false;
-            String cucumberRaw = singularInfo[8].strip().toUpperCase();
-            if(cucumberRaw.equals("YES")) cucumber = true;
+    /**
+     * Loads the menu leniently (see {@link #loadMenu(String, Menu, Path)}), keeping the items' names
+     * and descriptions in a description store.
+     *
+     * @param filePath the path of the menu file.
+     * @param menu the menu to add the items to.
+     * @param quarantineFile the file to write bad lines to; only created if there are any, and any left
+     *                       by an earlier load is deleted.
+     * @param descriptions the store for the names and descriptions, or null to keep them on the heap.
+     * @return a summary of the load.
+     * @throws UncheckedIOException if the menu file can't be read or the quarantine file written.
+     */
+    public static MenuLoadSummary loadMenu(String filePath, Menu menu, Path quarantineFile, DescriptionStore descriptions) {
+        MenuLoadSummary summary = new MenuLoadSummary(quarantineFile);
+        List<MenuItem> menuItems = new ArrayList<>();
+        readMenu(filePath, menu.getDictionary(), collect(menuItems, descriptions), summary);
+        menu.addItems(menuItems);
+        menu.getTextIndex();
+        return summary;
+    }
 
-            boolean tomato = false;
-            String tomatoRaw = singularInfo[9].strip().toUpperCase();
-            if(tomatoRaw.equals("YES")) tomato = true;
+    /**
+     * Collects the items read from the menu file, moving their text into a description store if given.
+     *
+     * @param menuItems the list to add the items to.
+     * @param descriptions the description store, or null.
+     * @return the consumer adding to the list.
+     */
+    private static Consumer<MenuItem> collect(List<MenuItem> menuItems, DescriptionStore descriptions) {
+        if (descriptions == null) return menuItems::add;
+        return menuItem -> menuItems.add(descriptions.store(menuItem));
+    }
 
-            Dressing dressing = null;
-            try {
-                dressing = Dressing.valueOf(singularInfo[10].toUpperCase().replace(" ","_"));
-            }catch (IllegalArgumentException e){
-                System.out.println("Error in file. Dressing data could not be parsed for item on line "+(i+1)+". Terminating. \nError message: "+e.getMessage());
-                System.exit(0);
-            }
+    /**
+     * Loads the menu into the columnar store, for menus too large to search efficiently as objects.
+     *
+     * @param filePath the path of the menu file.
+     * @return the columnar menu.
+     * @throws UncheckedIOException if the menu file can't be read.
+     * @throws IllegalArgumentException if a line can't be parsed.
+     */
+    public static MenuColumns loadMenuColumns(String filePath) {
+        MenuColumns menuColumns = new MenuColumns();
+        readMenu(filePath, menuColumns.getDictionary(), menuColumns::addItem, null);
+        return menuColumns;
+    }
 
-            Set<String> leafyGreens = new HashSet<>();
-            for(String l: leafyGreensRaw.split(",")){
-                leafyGreens.add(l.toLowerCase().strip());
-            }
+    /**
+     * Loads the menu into the off-heap columnar store, for menus too large to keep on the heap.
+     *
+     * @param filePath the path of the menu file.
+     * @param directory the directory to back the columns with files, or null to use direct memory.
+     * @return the off-heap menu.
+     * @throws UncheckedIOException if the menu file can't be read.
+     * @throws IllegalArgumentException if a line can't be parsed.
+     */
+    public static OffHeapMenuColumns loadOffHeapMenu(String filePath, Path directory) {
+        OffHeapMenuColumns menuColumns = new OffHeapMenuColumns(directory);
+        readMenu(filePath, menuColumns.getDictionary(), menuColumns::addItem, null);
+        return menuColumns;
+    }
 
-            Set<Sauce> sauces = new HashSet<>();
-            for(String s: saucesRaw.split(",")){
-                Sauce sauce = null;
+    /**
+     * Reads the menu file a line at a time and passes each item to the given consumer.
+     *
+     * @param filePath the path of the menu file.
+     * @param dictionary the dictionary to encode the items' buns and leafy greens with.
+     * @param menu receives each menu item in file order.
+     * @param summary the summary of a lenient load, or null to stop at the first bad line.
+     * @throws UncheckedIOException if the menu file can't be read (or a lenient load's quarantine file written).
+     * @throws IllegalArgumentException if a line can't be parsed and the load isn't lenient; the message
+     *         gives the line number.
+     */
+    private static void readMenu(String filePath, MenuDictionary dictionary, Consumer<MenuItem> menu, MenuLoadSummary summary) {
+        BufferedWriter quarantine = null;
+        try (BufferedReader reader = openMenu(Path.of(filePath))) {
+            // Bad lines from an earlier load would otherwise be taken for this one's
+            if (summary != null) Files.deleteIfExists(summary.getQuarantineFile());
+            // Skip the header
+            String line = reader.readLine();
+            int lineNumber = 1;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) continue;
+                if (summary != null) summary.countLine();
+                MenuItem menuItem;
                 try {
-                    sauce = Sauce.valueOf(s.toUpperCase().strip());
-                }catch (IllegalArgumentException e){
-                    System.out.println("Error in file. Sauce/s data could not be parsed for item on line "+(i+1)+". Terminating. \nError message: "+e.getMessage());
-                    System.exit(0);
+                    menuItem = parseMenuItem(line, dictionary);
+                } catch (IllegalArgumentException e) {
+                    String cause = e.getCause() == null ? e.getMessage() : e.getCause().getMessage();
+                    if (summary == null) {
+                        throw new IllegalArgumentException(e.getMessage()+" for item on line "+lineNumber+(e.getCause() == null ? "" : ": "+cause), e);
+                    }
+                    if (quarantine == null) quarantine = Files.newBufferedWriter(summary.getQuarantineFile());
+                    quarantine.write(lineNumber+"\t"+(e.getCause() == null ? cause : e.getMessage()+": "+cause)+"\t"+line);
+                    quarantine.newLine();
+                    summary.countQuarantined(e.getMessage());
+                    continue;
                 }
-                sauces.add(sauce);
-            }
-
-            Map<Filter,Object> filterMap = new LinkedHashMap<>();
-            filterMap.put(Filter.TYPE,type);
-            if(type.equals(Type.BURGER)){
-                filterMap.put(Filter.BUN, bun);
-                if(!sauces.isEmpty()) filterMap.put(Filter.SAUCE_S,sauces);
+                menu.accept(menuItem);
+                if (summary != null) summary.countItem();
             }
-            if(!meat.equals(Meat.NA)) filterMap.put(Filter.MEAT,meat);
-            filterMap.put(Filter.PICKLES, pickles);
-            filterMap.put(Filter.CHEESE, cheese);
-            filterMap.put(Filter.TOMATO, tomato);
-            if(type.equals(Type.SALAD)){
-                filterMap.put(Filter.DRESSING,dressing);
-                filterMap.put(Filter.LEAFY_GREENS,leafyGreens);
-                filterMap.put(Filter.CUCUMBER, cucumber);
-            }
-
-            DreamMenuItem dreamMenuItem = new DreamMenuItem(filterMap);
-            MenuItem menuItem = new MenuItem(menuItemIdentifier, menuItemName,price,description, dreamMenuItem);
-            menu.addItem(menuItem);
+        }catch (IOException io){
+            throw new UncheckedIOException(io);
+        }finally {
+            closeQuarantine(quarantine);
         }
-        return menu;
     }
 
-}
-
-
-
-
-
-
-
-
-
-
-
+    /**
+     * Opens the menu file for reading, decompressing it on the fly if it is gzip-compressed (which is
+     * recognised by its first two bytes, not its name). Only a buffer's worth of the file is held in
+     * memory at a time.
+     *
+     * @param path the path of the menu file.
+     * @return a reader of the menu's text.
+     * @throws IOException if the file can't be opened or its compressed header is corrupt.
+     */
+    private static BufferedReader openMenu(Path path) throws IOException {
+        InputStream in = new BufferedInputStream(Files.newInputStream(path), MENU_BUFFER_SIZE);
+        try {
+            in.mark(2);
+            int magic = in.read() | (in.read() << 8);
+            in.reset();
+            if (magic == GZIPInputStream.GZIP_MAGIC) in = new GZIPInputStream(in, MENU_BUFFER_SIZE);
+        }catch (IOException io){
+            in.close();
+            throw io;
+        }
+        return new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), MENU_BUFFER_SIZE);
+    }
 
+    /**
+     * Closes the quarantine file, if one was opened.
+     *
+     * @param quarantine the quarantine file writer, or null.
+     */
+    private static void closeQuarantine(BufferedWriter quarantine) {
+        if (quarantine == null) return;
+        try {
+            quarantine.close();
+        }catch (IOException io){
+            throw new UncheckedIOException(io);
+        }
+    }
 
+    /**
+     * Parses one line of the menu file into a menu item.
+     *
+     * @param line the line.
+     * @param dictionary the dictionary to encode the item's bun and leafy greens with.
+     * @return the menu item.
+     * @throws IllegalArgumentException if the line can't be parsed; the message says which part (and is
+     *         the same for every line with that problem), and the cause (if any) the details.
+     */
+    private static MenuItem parseMenuItem(String line, MenuDictionary dictionary) {
+        String[] info = line.split("\\[");
+        if(info.length<4) throw new IllegalArgumentException("Leafy greens, sauces or description missing");
+        String[] singularInfo = info[0].split(",");
+        if(singularInfo.length<11) {
+            throw new IllegalArgumentException("Too few fields before the leafy greens",
+                    new IllegalArgumentException("Expected 11 but found "+singularInfo.length));
+        }
 
+        String leafyGreensRaw = info[1].replace("]","");
+        String saucesRaw = info[2].replace("]","");
+        String description = info[3].replace("]","");
 
+        long menuItemIdentifier;
+        try{
+            menuItemIdentifier = Long.parseLong(singularInfo[0]);
+        }catch (NumberFormatException n) {
+            throw new IllegalArgumentException("Menu item identifier could not be parsed", n);
+        }
 
+        Type type;
+        try{
+            type = Type.valueOf(singularInfo[1].toUpperCase().strip());
+        }catch (IllegalArgumentException e){
+            throw new IllegalArgumentException("Type data could not be parsed", e);
+        }
 
+        String menuItemName = singularInfo[2];
 
+        double price;
+        try{
+            price = Double.parseDouble(singularInfo[3]);
+        }catch (NumberFormatException n){
+            throw new IllegalArgumentException("Price could not be parsed", n);
+        }
 
+        String bun = singularInfo[4].toLowerCase().strip();
 
+        Meat meat;
+        try {
+            meat = Meat.valueOf(singularInfo[5].toUpperCase());
+        }catch (IllegalArgumentException e){
+            throw new IllegalArgumentException("Meat data could not be parsed", e);
+        }
 
+        boolean cheese = false;
+        String cheeseRaw = singularInfo[6].strip().toUpperCase();
+        if(cheeseRaw.equals("YES")) cheese = true;
 
+        boolean pickles = false;
+        String pickleRaw = singularInfo[7].strip().toUpperCase();
+        if(pickleRaw.equals("YES")) pickles = true;
 
+        boolean cucumber = false;
+        String cucumberRaw = singularInfo[8].strip().toUpperCase();
+        if(cucumberRaw.equals("YES")) cucumber = true;
 
+        boolean tomato = false;
+        String tomatoRaw = singularInfo[9].strip().toUpperCase();
+        if(tomatoRaw.equals("YES")) tomato = true;
 
+        Dressing dressing;
+        try {
+            dressing = Dressing.valueOf(singularInfo[10].toUpperCase().replace(" ","_"));
+        }catch (IllegalArgumentException e){
+            throw new IllegalArgumentException("Dressing data could not be parsed", e);
+        }
 
+        Set<String> leafyGreens = new HashSet<>();
+        for(String l: leafyGreensRaw.split(",")){
+            leafyGreens.add(l.toLowerCase().strip());
+        }
 
+        Set<Sauce> sauces = new HashSet<>();
+        for(String s: saucesRaw.split(",")){
+            try {
+                sauces.add(Sauce.valueOf(s.toUpperCase().strip()));
+            }catch (IllegalArgumentException e){
+                throw new IllegalArgumentException("Sauce/s data could not be parsed", e);
+            }
+        }
 
+        Map<Filter,Object> filterMap = new LinkedHashMap<>();
+        filterMap.put(Filter.TYPE,type);
+        if(type.equals(Type.BURGER)){
+            filterMap.put(Filter.BUN, bun);
+            if(!sauces.isEmpty()) filterMap.put(Filter.SAUCE_S,sauces);
+        }
+        if(!meat.equals(Meat.NA)) filterMap.put(Filter.MEAT,meat);
+        filterMap.put(Filter.PICKLES, pickles);
+        filterMap.put(Filter.CHEESE, cheese);
+        filterMap.put(Filter.TOMATO, tomato);
+        if(type.equals(Type.SALAD)){
+            filterMap.put(Filter.DRESSING,dressing);
+            filterMap.put(Filter.LEAFY_GREENS,leafyGreens);
+            filterMap.put(Filter.CUCUMBER, cucumber);
+        }
 
+        DreamMenuItem dreamMenuItem;
+        try {
+            dreamMenuItem = new DreamMenuItem(filterMap, dictionary);
+        }catch (IllegalArgumentException e){
+            throw new IllegalArgumentException("Leafy greens data could not be encoded", e);
+        }
+        return new MenuItem(menuItemIdentifier, menuItemName,price,description, dreamMenuItem);
+    }
 
+}
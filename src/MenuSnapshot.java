@@ -0,0 +1,240 @@
+import java.util.*;
+import java.util.function.DoublePredicate;
+
+/**
+ * An immutable version of the menu's items, kept sorted by price and then identifier. The items are held in
+ * chunks, so a change copies only the chunk it touches (plus the small arrays indexing the chunks)
+ * and shares every other chunk with the previous version. Readers can use a snapshot for as long as
+ * they like without locking and never see a later change half made.
+ */
+public class MenuSnapshot implements Iterable<MenuItem> {
+    static final Comparator<MenuItem> ORDER = Comparator.comparingDouble(MenuItem::getPrice).thenComparingLong(MenuItem::getMenuItemIdentifier);
+    static final MenuSnapshot EMPTY = new MenuSnapshot(new MenuItem[0][], 0);
+    private static final int CHUNK_SIZE = 1024;
+    private final MenuItem[][] chunks;
+    private final int[] starts;
+    private final long version;
+
+    /**
+     * Creates a snapshot from its chunks.
+     *
+     * @param chunks the non-empty, sorted chunks of items.
+     * @param version the version number of the snapshot.
+     */
+    private MenuSnapshot(MenuItem[][] chunks, long version) {
+        this.chunks = chunks;
+        this.version = version;
+        // starts[k] is the position of the first item of chunk k; the last entry is the size
+        this.starts = new int[chunks.length + 1];
+        for (int k = 0; k < chunks.length; k++) starts[k + 1] = starts[k] + chunks[k].length;
+    }
+
+    /**
+     * Gets the version number of this snapshot, which goes up by one with each published change.
+     *
+     * @return the version number.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Gets the number of items.
+     *
+     * @return the number of items.
+     */
+    public int size() {
+        return starts[chunks.length];
+    }
+
+    @Override
+    public Iterator<MenuItem> iterator() {
+        return range(0, size()).iterator();
+    }
+
+    /**
+     * Gets the items at a range of positions.
+     *
+     * @param from the first position.
+     * @param to the position after the last.
+     * @return the items in the range, in order.
+     */
+    public Iterable<MenuItem> range(int from, int to) {
+        Objects.checkFromToIndex(from, to, size());
+        return () -> new Iterator<>() {
+            private int chunk = chunkOf(from);
+            private int offset = from - starts[chunk];
+            private int remaining = to - from;
+
+            @Override
+            public boolean hasNext() {
+                return remaining > 0;
+            }
+
+            @Override
+            public MenuItem next() {
+                if (remaining == 0) throw new NoSuchElementException();
+                if (offset == chunks[chunk].length) {
+                    chunk++;
+                    offset = 0;
+                }
+                remaining--;
+                return chunks[chunk][offset++];
+            }
+        };
+    }
+
+    /**
+     * Counts the leading items whose prices pass a test. The test must pass for a prefix of the items
+     * in price order and fail for the rest, so it can be answered by binary search.
+     *
+     * @param leading the test, true for the prices at the front.
+     * @return the number of leading items passing the test.
+     */
+    public int countLeading(DoublePredicate leading) {
+        int low = 0;
+        int high = chunks.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            MenuItem[] chunk = chunks[middle];
+            if (leading.test(chunk[chunk.length - 1].getPrice())) low = middle + 1;
+            else high = middle;
+        }
+        if (low == chunks.length) return size();
+        MenuItem[] chunk = chunks[low];
+        int first = 0;
+        int last = chunk.length;
+        while (first < last) {
+            int middle = (first + last) >>> 1;
+            if (leading.test(chunk[middle].getPrice())) first = middle + 1;
+            else last = middle;
+        }
+        return starts[low] + first;
+    }
+
+    /**
+     * Finds the chunk holding a position.
+     *
+     * @param position the position.
+     * @return the index of the chunk.
+     */
+    private int chunkOf(int position) {
+        int k = Arrays.binarySearch(starts, 0, chunks.length, position);
+        // An exact hit is the first item of a chunk; otherwise it is in the chunk before the insertion point
+        return k >= 0 ? k : Math.max(0, -k - 2);
+    }
+
+    /**
+     * Finds the chunk an item belongs in by its place in the order.
+     *
+     * @param menuItem the item.
+     * @return the index of the chunk.
+     */
+    private int chunkFor(MenuItem menuItem) {
+        int low = 0;
+        int high = chunks.length - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            MenuItem[] chunk = chunks[middle];
+            if (ORDER.compare(chunk[chunk.length - 1], menuItem) < 0) low = middle + 1;
+            else high = middle;
+        }
+        return low;
+    }
+
+    /**
+     * Creates the next version with an item added, replacing any item that sorts equal to it.
+     *
+     * @param menuItem the item to add.
+     * @return the new snapshot.
+     */
+    MenuSnapshot with(MenuItem menuItem) {
+        if (chunks.length == 0) return new MenuSnapshot(new MenuItem[][]{{menuItem}}, version + 1);
+        int k = chunkFor(menuItem);
+        MenuItem[] chunk = chunks[k];
+        int index = Arrays.binarySearch(chunk, menuItem, ORDER);
+        MenuItem[] changed;
+        if (index >= 0) {
+            changed = chunk.clone();
+            changed[index] = menuItem;
+        } else {
+            index = -index - 1;
+            changed = new MenuItem[chunk.length + 1];
+            System.arraycopy(chunk, 0, changed, 0, index);
+            changed[index] = menuItem;
+            System.arraycopy(chunk, index, changed, index + 1, chunk.length - index);
+        }
+        if (changed.length <= 2 * CHUNK_SIZE) return replace(k, changed);
+        // Split a chunk that has grown too large into two halves
+        int half = changed.length / 2;
+        return replace(k, Arrays.copyOfRange(changed, 0, half), Arrays.copyOfRange(changed, half, changed.length));
+    }
+
+    /**
+     * Creates the next version without an item.
+     *
+     * @param menuItem the item to remove.
+     * @return the new snapshot, or this snapshot if the item isn't in it.
+     */
+    MenuSnapshot without(MenuItem menuItem) {
+        if (chunks.length == 0) return this;
+        int k = chunkFor(menuItem);
+        MenuItem[] chunk = chunks[k];
+        int index = Arrays.binarySearch(chunk, menuItem, ORDER);
+        if (index < 0) return this;
+        MenuItem[] changed = new MenuItem[chunk.length - 1];
+        System.arraycopy(chunk, 0, changed, 0, index);
+        System.arraycopy(chunk, index + 1, changed, index, changed.length - index);
+        return changed.length == 0 ? replace(k) : replace(k, changed);
+    }
+
+    /**
+     * Creates the next version with many items added at once, replacing any items that sort equal to
+     * them. This rebuilds every chunk, so it is for loading, not for single changes.
+     *
+     * @param menuItems the items to add.
+     * @return the new snapshot.
+     */
+    MenuSnapshot withAll(Collection<MenuItem> menuItems) {
+        List<MenuItem> added = new ArrayList<>(menuItems);
+        added.sort(ORDER);
+        List<MenuItem> merged = new ArrayList<>(size() + added.size());
+        Iterator<MenuItem> existing = iterator();
+        MenuItem current = existing.hasNext() ? existing.next() : null;
+        for (int i = 0; i < added.size(); i++) {
+            MenuItem menuItem = added.get(i);
+            // Of several added items that sort equal, the last one wins
+            if (i + 1 < added.size() && ORDER.compare(menuItem, added.get(i + 1)) == 0) continue;
+            while (current != null && ORDER.compare(current, menuItem) < 0) {
+                merged.add(current);
+                current = existing.hasNext() ? existing.next() : null;
+            }
+            if (current != null && ORDER.compare(current, menuItem) == 0) current = existing.hasNext() ? existing.next() : null;
+            merged.add(menuItem);
+        }
+        while (current != null) {
+            merged.add(current);
+            current = existing.hasNext() ? existing.next() : null;
+        }
+        MenuItem[][] rebuilt = new MenuItem[(merged.size() + CHUNK_SIZE - 1) / CHUNK_SIZE][];
+        for (int k = 0; k < rebuilt.length; k++) {
+            rebuilt[k] = merged.subList(k * CHUNK_SIZE, Math.min(merged.size(), (k + 1) * CHUNK_SIZE)).toArray(new MenuItem[0]);
+        }
+        return new MenuSnapshot(rebuilt, version + 1);
+    }
+
+    /**
+     * Creates the next version with one chunk replaced by any number of chunks.
+     *
+     * @param k the index of the chunk to replace.
+     * @param replacements the chunks to put in its place.
+     * @return the new snapshot.
+     */
+    private MenuSnapshot replace(int k, MenuItem[]... replacements) {
+        MenuItem[][] changed = new MenuItem[chunks.length - 1 + replacements.length][];
+        System.arraycopy(chunks, 0, changed, 0, k);
+        System.arraycopy(replacements, 0, changed, k, replacements.length);
+        System.arraycopy(chunks, k + 1, changed, k + replacements.length, chunks.length - k - 1);
+        return new MenuSnapshot(changed, version + 1);
+    }
+}
@@ -0,0 +1,155 @@
+import java.util.*;
+
+/**
+ * Counts how many items of a menu have each value of each filter, kept up to date as items are added
+ * and removed. The counts estimate how many items each part of a search lets through, so the filters
+ * most likely to reject an item can be checked first (see {@link QueryPlan}).
+ * <p>
+ * Writers change the counts under a lock and then publish an unchangeable copy of them, which every
+ * search reads without locking; readers see the counts as of the last {@link #publish()}.
+ */
+public class MenuStatistics {
+    // Only touched by writers, while holding the lock
+    private final Map<Filter, Map<Object, Integer>> valueCounts = new EnumMap<>(Filter.class);
+    private final Map<Filter, Integer> filterCounts = new EnumMap<>(Filter.class);
+    private int itemCount;
+    private volatile Counts counts = new Counts(0, new EnumMap<>(Filter.class), new EnumMap<>(Filter.class));
+
+    /**
+     * Counts an item's values. Readers don't see the change until the counts are published.
+     *
+     * @param dreamMenuItem the attributes of the item.
+     */
+    synchronized void add(DreamMenuItem dreamMenuItem) {
+        count(dreamMenuItem, 1);
+    }
+
+    /**
+     * Stops counting an item's values. Readers don't see the change until the counts are published.
+     *
+     * @param dreamMenuItem the attributes of the item.
+     */
+    synchronized void remove(DreamMenuItem dreamMenuItem) {
+        count(dreamMenuItem, -1);
+    }
+
+    /**
+     * Adds to (or takes from) the counts of an item's values.
+     *
+     * @param dreamMenuItem the attributes of the item.
+     * @param change 1 to add the item, -1 to remove it.
+     */
+    private void count(DreamMenuItem dreamMenuItem, int change) {
+        itemCount += change;
+        for (Filter filter : Filter.values()) {
+            if (!dreamMenuItem.hasFilter(filter)) continue;
+            filterCounts.merge(filter, change, Integer::sum);
+            Map<Object, Integer> counts = valueCounts.computeIfAbsent(filter, f -> new HashMap<>());
+            Object value = dreamMenuItem.getFilter(filter);
+            if (value instanceof Collection<?> values) for (Object element : values) counts.merge(element, change, Integer::sum);
+            else counts.merge(value, change, Integer::sum);
+        }
+    }
+
+    /**
+     * Makes the counts as they are now the ones searches read. Called once a write is complete, not
+     * per item, since it copies every count.
+     */
+    synchronized void publish() {
+        Map<Filter, Map<Object, Integer>> values = new EnumMap<>(Filter.class);
+        valueCounts.forEach((filter, counts) -> values.put(filter, Collections.unmodifiableMap(new HashMap<>(counts))));
+        counts = new Counts(itemCount, new EnumMap<>(filterCounts), values);
+    }
+
+    /**
+     * Gets the number of items.
+     *
+     * @return the number of items.
+     */
+    public int getItemCount() {
+        return counts.itemCount;
+    }
+
+    /**
+     * Gets the number of items that have a filter at all (e.g. only burgers have a bun).
+     *
+     * @param filter the filter.
+     * @return the number of items with the filter.
+     */
+    public int getFilterCount(Filter filter) {
+        return counts.filterCounts.getOrDefault(filter, 0);
+    }
+
+    /**
+     * Gets the number of items with a value of a filter (for a set-valued filter, the number whose
+     * set contains the value).
+     *
+     * @param filter the filter.
+     * @param value the value.
+     * @return the number of items.
+     */
+    public int getCount(Filter filter, Object value) {
+        return counts.getCount(filter, value);
+    }
+
+    /**
+     * Estimates how many items pass one filter of a search: those without the filter, plus those whose
+     * value matches. For a set of wanted values the counts of each are added, which can only
+     * overestimate, and is capped at the number of items with the filter.
+     *
+     * @param filter the filter.
+     * @param wanted the value (or set of values) searched for.
+     * @return the estimated number of items passing.
+     */
+    public int estimatePassing(Filter filter, Object wanted) {
+        return counts.estimatePassing(filter, wanted);
+    }
+
+    /**
+     * Plans a search: orders its filters so the ones letting the fewest items through are checked first.
+     *
+     * @param dreamMenuItem the search criteria.
+     * @return the query plan.
+     */
+    public QueryPlan plan(DreamMenuItem dreamMenuItem) {
+        // One copy of the counts for the whole plan, so every filter is estimated against the same menu
+        Counts counts = this.counts;
+        Map<Filter, Object> filters = dreamMenuItem.getAllFilters();
+        Filter[] order = filters.keySet().toArray(new Filter[0]);
+        int[] passing = new int[Filter.values().length];
+        for (Filter filter : order) passing[filter.ordinal()] = counts.estimatePassing(filter, filters.get(filter));
+        // Stable, so equally selective filters keep the order of the search
+        Arrays.sort(order, Comparator.comparingInt(filter -> passing[filter.ordinal()]));
+        int[] estimates = new int[order.length];
+        for (int i = 0; i < order.length; i++) estimates[i] = passing[order[i].ordinal()];
+        return new QueryPlan(order, estimates, counts.itemCount);
+    }
+
+    /**
+     * The counts as published, never changed after.
+     */
+    private static final class Counts {
+        private final int itemCount;
+        private final Map<Filter, Integer> filterCounts;
+        private final Map<Filter, Map<Object, Integer>> valueCounts;
+
+        private Counts(int itemCount, Map<Filter, Integer> filterCounts, Map<Filter, Map<Object, Integer>> valueCounts) {
+            this.itemCount = itemCount;
+            this.filterCounts = filterCounts;
+            this.valueCounts = valueCounts;
+        }
+
+        private int getCount(Filter filter, Object value) {
+            Map<Object, Integer> counts = valueCounts.get(filter);
+            return counts == null ? 0 : counts.getOrDefault(value, 0);
+        }
+
+        private int estimatePassing(Filter filter, Object wanted) {
+            int withFilter = filterCounts.getOrDefault(filter, 0);
+            long matching = 0;
+            if (wanted instanceof Collection<?> values) for (Object value : values) matching += getCount(filter, value);
+            else matching = getCount(filter, wanted);
+            return itemCount - withFilter + (int) Math.min(matching, withFilter);
+        }
+    }
+}
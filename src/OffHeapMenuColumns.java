@@ -0,0 +1,282 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * A columnar menu store that keeps its columns outside the Java heap, in direct buffers or, given a
+ * directory, in memory-mapped files. Names and descriptions live off-heap too, so neither the heap
+ * nor garbage collection grows with the size of the menu. Searches have the same results as
+ * {@link Menu#findMatch}; only the matching items are brought onto the heap.
+ * <p>
+ * The columns grow a chunk at a time and the text a segment at a time, each twice the size of the
+ * one before up to a cap, so a small menu takes little memory and nothing is ever copied: a buffer,
+ * once allocated, holds its items for as long as the store does instead of being left for the
+ * garbage collector to free.
+ */
+public class OffHeapMenuColumns {
+    private static final int FIRST_CHUNK_ITEMS = 1024;
+    // Chunks stop doubling here, where a chunk of the widest column is 8MB
+    private static final int MAX_CHUNK_ITEMS = 1 << 20;
+    private static final int FIRST_TEXT_SEGMENT_SIZE = 1 << 16;
+    private static final int MAX_TEXT_SEGMENT_SIZE = 1 << 26;
+    private final MenuDictionary dictionary = new MenuDictionary();
+    private final Path directory;
+    private final List<Chunk> chunks = new ArrayList<>();
+    private final List<ByteBuffer> textSegments = new ArrayList<>();
+    private int size;
+
+    /**
+     * Creates an empty store in direct (off-heap) memory.
+     */
+    public OffHeapMenuColumns() {
+        this(null);
+    }
+
+    /**
+     * Creates an empty store backed by files in the given directory, so the operating system can page
+     * the columns in and out. Any existing column files in the directory are overwritten.
+     *
+     * @param directory the directory for the column files, or null to use direct memory.
+     */
+    public OffHeapMenuColumns(Path directory) {
+        this.directory = directory;
+        try {
+            if (directory != null) Files.createDirectories(directory);
+        } catch (IOException io) {
+            throw new UncheckedIOException(io);
+        }
+        addChunk();
+    }
+
+    /**
+     * Gets the dictionary that the bun and leafy greens codes of this menu refer to. Items added to
+     * this menu must have been encoded with it.
+     *
+     * @return the dictionary.
+     */
+    public MenuDictionary getDictionary() {
+        return dictionary;
+    }
+
+    /**
+     * Adds an item, copying its attributes, name and description into the columns.
+     *
+     * @param menuItem the item to add.
+     */
+    public void addItem(MenuItem menuItem) {
+        Chunk chunk = chunks.get(chunks.size() - 1);
+        if (size == chunk.start + chunk.capacity) chunk = addChunk();
+        int index = size - chunk.start;
+        DreamMenuItem dreamMenuItem = menuItem.getDreamMenuItem();
+        chunk.identifiers.putLong(index * Long.BYTES, menuItem.getMenuItemIdentifier());
+        chunk.prices.putDouble(index * Double.BYTES, menuItem.getPrice());
+        chunk.attributes.putInt(index * Integer.BYTES, PackedAttributes.pack(dreamMenuItem, dictionary));
+        chunk.present.putInt(index * Integer.BYTES, PackedAttributes.presence(dreamMenuItem));
+        chunk.sauces.putLong(index * Long.BYTES, PackedAttributes.sauceMask(dreamMenuItem.getFilter(Filter.SAUCE_S)));
+        chunk.leafyGreens.putLong(index * Long.BYTES, PackedAttributes.leafyGreensMask(dreamMenuItem, dictionary));
+        chunk.textOffsets.putLong(index * Long.BYTES, writeText(menuItem.getMenuItemName(), menuItem.getDescription()));
+        size++;
+    }
+
+    /**
+     * Adds a chunk to every column, twice the size of the last (or the first size), up to the cap.
+     *
+     * @return the new chunk.
+     */
+    private Chunk addChunk() {
+        Chunk last = chunks.isEmpty() ? null : chunks.get(chunks.size() - 1);
+        int start = last == null ? 0 : last.start + last.capacity;
+        int capacity = last == null ? FIRST_CHUNK_ITEMS : Math.min(last.capacity << 1, MAX_CHUNK_ITEMS);
+        Chunk chunk = new Chunk(start, capacity,
+                allocate("identifiers", start, capacity, Long.BYTES),
+                allocate("prices", start, capacity, Double.BYTES),
+                allocate("attributes", start, capacity, Integer.BYTES),
+                allocate("present", start, capacity, Integer.BYTES),
+                allocate("sauces", start, capacity, Long.BYTES),
+                allocate("leafyGreens", start, capacity, Long.BYTES),
+                allocate("textOffsets", start, capacity, Long.BYTES));
+        chunks.add(chunk);
+        return chunk;
+    }
+
+    /**
+     * Allocates one column's part of a chunk. A file-backed column maps the chunk's part of its file,
+     * which is created (or emptied) with the first chunk; a direct one gets a new direct buffer.
+     *
+     * @param name the name of the column (and its file).
+     * @param start the position of the chunk's first item.
+     * @param capacity the number of items in the chunk.
+     * @param width the number of bytes per item.
+     * @return the column's buffer for the chunk.
+     */
+    private ByteBuffer allocate(String name, int start, int capacity, int width) {
+        int bytes = Math.multiplyExact(capacity, width);
+        if (directory != null) return map(directory.resolve(name), (long) start * width, bytes, start == 0);
+        return ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Maps part of a file into memory, growing the file to hold it.
+     *
+     * @param file the file.
+     * @param position the position in the file of the mapping.
+     * @param bytes the size of the mapping.
+     * @param truncate whether to discard the existing contents of the file.
+     * @return the mapped buffer.
+     */
+    private static ByteBuffer map(Path file, long position, int bytes, boolean truncate) {
+        Set<StandardOpenOption> options = EnumSet.of(StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (truncate) options.add(StandardOpenOption.TRUNCATE_EXISTING);
+        try (FileChannel channel = FileChannel.open(file, options)) {
+            // The mapping stays valid after the channel is closed
+            return channel.map(FileChannel.MapMode.READ_WRITE, position, bytes).order(ByteOrder.nativeOrder());
+        } catch (IOException io) {
+            throw new UncheckedIOException(io);
+        }
+    }
+
+    /**
+     * Appends an item's name and description to the text segments.
+     *
+     * @param name the name of the item.
+     * @param description the description of the item.
+     * @return the offset of the text, for {@link #readText(long)}.
+     */
+    private long writeText(String name, String description) {
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        byte[] descriptionBytes = description.getBytes(StandardCharsets.UTF_8);
+        int length = 2 * Integer.BYTES + nameBytes.length + descriptionBytes.length;
+        if (length > MAX_TEXT_SEGMENT_SIZE) throw new IllegalArgumentException("Description too long for item " + name);
+        ByteBuffer segment = textSegments.isEmpty() ? null : textSegments.get(textSegments.size() - 1);
+        if (segment == null || segment.remaining() < length) {
+            // Texts never straddle two segments, so a text too long for the next size gets a segment of its own size
+            int segmentSize = segment == null ? FIRST_TEXT_SEGMENT_SIZE : Math.min(segment.capacity() << 1, MAX_TEXT_SEGMENT_SIZE);
+            segmentSize = Math.max(segmentSize, length);
+            Path file = directory == null ? null : directory.resolve("text" + textSegments.size());
+            segment = file == null ? ByteBuffer.allocateDirect(segmentSize) : map(file, 0, segmentSize, true);
+            textSegments.add(segment);
+        }
+        // The segment's number in the high half, the position in it in the low half
+        long offset = (long) (textSegments.size() - 1) << 32 | segment.position();
+        segment.putInt(nameBytes.length).put(nameBytes).putInt(descriptionBytes.length).put(descriptionBytes);
+        return offset;
+    }
+
+    /**
+     * Reads an item's name and description back onto the heap.
+     *
+     * @param offset the offset of the text.
+     * @return the name and the description.
+     */
+    private String[] readText(long offset) {
+        ByteBuffer segment = textSegments.get((int) (offset >>> 32));
+        int position = (int) offset;
+        String[] text = new String[2];
+        for (int i = 0; i < text.length; i++) {
+            byte[] bytes = new byte[segment.getInt(position)];
+            segment.get(position + Integer.BYTES, bytes);
+            text[i] = new String(bytes, StandardCharsets.UTF_8);
+            position += Integer.BYTES + bytes.length;
+        }
+        return text;
+    }
+
+    /**
+     * Gets the number of items on the menu.
+     *
+     * @return the number of items.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Creates the MenuItem for the item at a position in the columns.
+     *
+     * @param index the position of the item.
+     * @return a new MenuItem with the item's details.
+     */
+    public MenuItem getItem(int index) {
+        Objects.checkIndex(index, size);
+        // The last chunk starting at or before the item
+        int low = 0;
+        int high = chunks.size() - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (chunks.get(middle).start <= index) low = middle;
+            else high = middle - 1;
+        }
+        Chunk chunk = chunks.get(low);
+        return getItem(chunk, index - chunk.start);
+    }
+
+    /**
+     * Creates the MenuItem for the item at a position in a chunk.
+     *
+     * @param chunk the chunk.
+     * @param index the position of the item in the chunk.
+     * @return a new MenuItem with the item's details.
+     */
+    private MenuItem getItem(Chunk chunk, int index) {
+        DreamMenuItem dreamMenuItem = PackedAttributes.unpack(chunk.attributes.getInt(index * Integer.BYTES), chunk.present.getInt(index * Integer.BYTES),
+                chunk.sauces.getLong(index * Long.BYTES), chunk.leafyGreens.getLong(index * Long.BYTES), dictionary);
+        String[] text = readText(chunk.textOffsets.getLong(index * Long.BYTES));
+        return new MenuItem(chunk.identifiers.getLong(index * Long.BYTES), text[0], chunk.prices.getDouble(index * Double.BYTES), text[1], dreamMenuItem);
+    }
+
+    /**
+     * Finds the items matching the search criteria, with the same results as {@link Menu#findMatch}.
+     *
+     * @param dreamMenuItem the search criteria.
+     * @return the matching items, in the order they were added.
+     */
+    public List<MenuItem> findMatch(DreamMenuItem dreamMenuItem) {
+        PackedQuery query = new PackedQuery(dreamMenuItem, dictionary);
+        List<MenuItem> matching = new ArrayList<>();
+        for (Chunk chunk : chunks) {
+            int items = Math.min(chunk.capacity, size - chunk.start);
+            for (int i = 0; i < items; i++) {
+                if (query.matches(chunk.attributes.getInt(i * Integer.BYTES), chunk.present.getInt(i * Integer.BYTES), chunk.sauces.getLong(i * Long.BYTES),
+                        chunk.leafyGreens.getLong(i * Long.BYTES), chunk.prices.getDouble(i * Double.BYTES))) {
+                    matching.add(getItem(chunk, i));
+                }
+            }
+        }
+        return matching;
+    }
+
+    /**
+     * A run of items in every column, each column's part in a buffer of its own.
+     */
+    private static final class Chunk {
+        private final int start;
+        private final int capacity;
+        private final ByteBuffer identifiers;
+        private final ByteBuffer prices;
+        private final ByteBuffer attributes;
+        private final ByteBuffer present;
+        private final ByteBuffer sauces;
+        private final ByteBuffer leafyGreens;
+        private final ByteBuffer textOffsets;
+
+        private Chunk(int start, int capacity, ByteBuffer identifiers, ByteBuffer prices, ByteBuffer attributes, ByteBuffer present,
+                      ByteBuffer sauces, ByteBuffer leafyGreens, ByteBuffer textOffsets) {
+            this.start = start;
+            this.capacity = capacity;
+            this.identifiers = identifiers;
+            this.prices = prices;
+            this.attributes = attributes;
+            this.present = present;
+            this.sauces = sauces;
+            this.leafyGreens = leafyGreens;
+            this.textOffsets = textOffsets;
+        }
+    }
+}
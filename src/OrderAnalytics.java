@@ -0,0 +1,218 @@
+import java.time.Clock;
+import java.util.*;
+
+/**
+ * Keeps running statistics of submitted orders, in memory that doesn't grow with the number of orders:
+ * exact all-time counts of items, meats and sauces (bounded by the size of the menu), per-minute item
+ * counts over a sliding window, and estimated counts of the words customers use in their special
+ * requests, with the most frequent of them tracked as heavy hitters.
+ */
+public class OrderAnalytics {
+    private static final long MINUTE = 60_000;
+    private final Clock clock;
+    private final Map<Long, Long> itemCounts = new HashMap<>();
+    private final Map<Meat, Long> meatCounts = new EnumMap<>(Meat.class);
+    private final Map<Sauce, Long> sauceCounts = new EnumMap<>(Sauce.class);
+    private final CountMinSketch requestTokens;
+    private final Map<String, Long> heavyHitters = new HashMap<>();
+    private final int heavyHitterCapacity;
+    // One bucket of item counts per minute of the window, reused round-robin
+    private final List<Map<Long, Long>> minuteCounts;
+    private final long[] bucketMinutes;
+    private long orderCount;
+
+    /**
+     * Creates analytics with a one-hour window, tracking the 100 most frequent request words.
+     */
+    public OrderAnalytics() {
+        this(60, 100, Clock.systemUTC());
+    }
+
+    /**
+     * Creates analytics.
+     *
+     * @param windowMinutes the number of minutes of recent orders to keep per-minute counts for.
+     * @param heavyHitterCapacity the number of frequent request words to track.
+     * @param clock the clock giving the time of each order.
+     */
+    public OrderAnalytics(int windowMinutes, int heavyHitterCapacity, Clock clock) {
+        if (windowMinutes <= 0 || heavyHitterCapacity <= 0) throw new IllegalArgumentException("Window and capacity must be positive");
+        this.clock = clock;
+        this.heavyHitterCapacity = heavyHitterCapacity;
+        this.requestTokens = new CountMinSketch(2048, 4);
+        this.minuteCounts = new ArrayList<>(windowMinutes);
+        this.bucketMinutes = new long[windowMinutes];
+        for (int i = 0; i < windowMinutes; i++) {
+            minuteCounts.add(new HashMap<>());
+            bucketMinutes[i] = Long.MIN_VALUE;
+        }
+    }
+
+    /**
+     * Records a submitted order.
+     *
+     * @param menuItem the ordered item (a custom order has identifier 0 and only counts its ingredients).
+     * @param specialRequests the customer's special requests, possibly empty.
+     */
+    public synchronized void recordOrder(MenuItem menuItem, String specialRequests) {
+        orderCount++;
+        long id = menuItem.getMenuItemIdentifier();
+        if (id != 0) {
+            itemCounts.merge(id, 1L, Long::sum);
+            minuteBucket(clock.millis() / MINUTE).merge(id, 1L, Long::sum);
+        }
+        DreamMenuItem dreamMenuItem = menuItem.getDreamMenuItem();
+        if (dreamMenuItem.getFilter(Filter.MEAT) instanceof Meat meat) meatCounts.merge(meat, 1L, Long::sum);
+        if (dreamMenuItem.getFilter(Filter.SAUCE_S) instanceof Collection<?> sauces) {
+            for (Object sauce : sauces) if (sauce instanceof Sauce s) sauceCounts.merge(s, 1L, Long::sum);
+        }
+        if (specialRequests == null) return;
+        for (String token : specialRequests.toLowerCase().split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty()) countToken(token);
+        }
+    }
+
+    /**
+     * Counts a request word in the sketch, and keeps it among the heavy hitters if its estimate beats
+     * the least frequent one tracked.
+     *
+     * @param token the word.
+     */
+    private void countToken(String token) {
+        long estimate = requestTokens.add(token, 1);
+        if (heavyHitters.containsKey(token) || heavyHitters.size() < heavyHitterCapacity) {
+            heavyHitters.put(token, estimate);
+            return;
+        }
+        Map.Entry<String, Long> least = null;
+        for (Map.Entry<String, Long> entry : heavyHitters.entrySet()) {
+            if (least == null || entry.getValue() < least.getValue()) least = entry;
+        }
+        if (least != null && estimate > least.getValue()) {
+            heavyHitters.remove(least.getKey());
+            heavyHitters.put(token, estimate);
+        }
+    }
+
+    /**
+     * Gets the bucket for a minute, emptying it first if it last held an older minute.
+     *
+     * @param minute the minute since the epoch.
+     * @return the bucket of item counts.
+     */
+    private Map<Long, Long> minuteBucket(long minute) {
+        int index = (int) Math.floorMod(minute, (long) minuteCounts.size());
+        if (bucketMinutes[index] != minute) {
+            minuteCounts.get(index).clear();
+            bucketMinutes[index] = minute;
+        }
+        return minuteCounts.get(index);
+    }
+
+    /**
+     * Gets the number of orders recorded.
+     *
+     * @return the number of orders.
+     */
+    public synchronized long getOrderCount() {
+        return orderCount;
+    }
+
+    /**
+     * Gets the number of times an item has been ordered.
+     *
+     * @param menuItemIdentifier the identifier of the item.
+     * @return the exact count.
+     */
+    public synchronized long getItemCount(long menuItemIdentifier) {
+        return itemCounts.getOrDefault(menuItemIdentifier, 0L);
+    }
+
+    /**
+     * Gets how often each meat has been ordered.
+     *
+     * @return the exact counts.
+     */
+    public synchronized Map<Meat, Long> getMeatCounts() {
+        return new EnumMap<>(meatCounts);
+    }
+
+    /**
+     * Gets how often each sauce has been ordered.
+     *
+     * @return the exact counts.
+     */
+    public synchronized Map<Sauce, Long> getSauceCounts() {
+        return new EnumMap<>(sauceCounts);
+    }
+
+    /**
+     * Gets the most ordered items of all time.
+     *
+     * @param n the number of items.
+     * @return up to n item identifiers with their counts, most ordered first.
+     */
+    public synchronized List<Map.Entry<Long, Long>> getTopItems(int n) {
+        return top(itemCounts, n);
+    }
+
+    /**
+     * Gets the most ordered items over the last few minutes (including the current one).
+     *
+     * @param n the number of items.
+     * @param minutes the number of minutes, at most the window given at construction.
+     * @return up to n item identifiers with their counts, most ordered first.
+     */
+    public synchronized List<Map.Entry<Long, Long>> getTopItems(int n, int minutes) {
+        if (minutes <= 0 || minutes > minuteCounts.size()) throw new IllegalArgumentException("Minutes must be between 1 and " + minuteCounts.size());
+        long now = clock.millis() / MINUTE;
+        Map<Long, Long> recent = new HashMap<>();
+        for (int i = 0; i < minuteCounts.size(); i++) {
+            if (bucketMinutes[i] <= now - minutes || bucketMinutes[i] > now) continue;
+            minuteCounts.get(i).forEach((id, count) -> recent.merge(id, count, Long::sum));
+        }
+        return top(recent, n);
+    }
+
+    /**
+     * Estimates how many times a word has appeared in special requests.
+     *
+     * @param token the word, in lower case.
+     * @return the estimate, never less than the true count.
+     */
+    public synchronized long estimateRequestToken(String token) {
+        return requestTokens.estimate(token);
+    }
+
+    /**
+     * Gets the words appearing most often in special requests.
+     *
+     * @param n the number of words, at most the capacity given at construction.
+     * @return up to n words with their estimated counts, most frequent first.
+     */
+    public synchronized List<Map.Entry<String, Long>> getTopRequestTokens(int n) {
+        return top(heavyHitters, n);
+    }
+
+    /**
+     * Selects the n largest counts with a bounded min-heap, in O(m log n) for m counts.
+     *
+     * @param counts the counts.
+     * @param n the number to select.
+     * @return the n largest counts, largest first.
+     */
+    private static <K> List<Map.Entry<K, Long>> top(Map<K, Long> counts, int n) {
+        PriorityQueue<Map.Entry<K, Long>> heap = new PriorityQueue<>(Map.Entry.comparingByValue());
+        for (Map.Entry<K, Long> entry : counts.entrySet()) {
+            if (n <= 0) break;
+            if (heap.size() < n) heap.add(Map.entry(entry.getKey(), entry.getValue()));
+            else if (entry.getValue() > heap.peek().getValue()) {
+                heap.poll();
+                heap.add(Map.entry(entry.getKey(), entry.getValue()));
+            }
+        }
+        List<Map.Entry<K, Long>> top = new ArrayList<>(heap);
+        top.sort(Map.Entry.<K, Long>comparingByValue().reversed());
+        return top;
+    }
+}
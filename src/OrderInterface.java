@@ -4,10 +4,12 @@ import javax.swing.event.DocumentListener;
 import java.awt.*;
 
 public class OrderInterface {
-    private static final int PREVIEW_WIDTH = 275;
-    private static final int PREVIEW_HEIGHT = 275;
+    // Package-private so the pictures can be read ahead at this size
+    static final int PREVIEW_WIDTH = 275;
+    static final int PREVIEW_HEIGHT = 275;
     private final JFrame frame;
     private final GridBagConstraints gbc;
+    private final ImageCache imageCache;
     private Geek geek;
     private String specialRequests;
     private String name;
@@ -19,6 +21,17 @@ public class OrderInterface {
      * @param menuItem The menu item being ordered.
      */
     public OrderInterface(MenuItem menuItem) {
+        this(menuItem, new ImageCache(0));
+    }
+
+    /**
+     * Constructs an OrderGUI whose image comes from a cache shared with other windows.
+     *
+     * @param menuItem The menu item being ordered.
+     * @param imageCache The cache of scaled images.
+     */
+    public OrderInterface(MenuItem menuItem, ImageCache imageCache) {
+        this.imageCache = imageCache;
         // Prepare the main frame for the GUI.
         frame = InterfaceUtilities.createFrame();
 
@@ -51,7 +64,7 @@ public class OrderInterface {
         panel.setBorder(BorderFactory.createLineBorder(Color.BLACK));
 
         // Add image to the panel
-        Image image = InterfaceUtilities.createImage("images/" + menuItem.getMenuItemIdentifier() + ".png", PREVIEW_WIDTH, PREVIEW_HEIGHT);
+        Image image = imageCache.getImage("images/" + menuItem.getMenuItemIdentifier() + ".png", PREVIEW_WIDTH, PREVIEW_HEIGHT);
         JLabel imgLabel = InterfaceUtilities.createLabel();
         imgLabel.setIcon(new ImageIcon(image));
         Dimension imgSize = new Dimension(PREVIEW_WIDTH, PREVIEW_HEIGHT);
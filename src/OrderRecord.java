@@ -0,0 +1,68 @@
+/**
+ * An order as kept by the {@link OrderStore}.
+ */
+public class OrderRecord {
+    private final long orderId;
+    private final long timestamp;
+    private final long contactNumber;
+    private final String customerName;
+    private final long menuItemIdentifier;
+    private final String menuItemName;
+    private final String specialRequests;
+
+    /**
+     * Creates an order record.
+     *
+     * @param orderId the identifier the store gave the order.
+     * @param timestamp the time the order was stored, in milliseconds since the epoch.
+     * @param contactNumber the customer's contact number (see {@link Geek#getOrderNumber()}).
+     * @param customerName the customer's name.
+     * @param menuItemIdentifier the identifier of the ordered item, 0 for a custom order.
+     * @param menuItemName the name of the ordered item.
+     * @param specialRequests the customer's special requests.
+     */
+    OrderRecord(long orderId, long timestamp, long contactNumber, String customerName, long menuItemIdentifier,
+                String menuItemName, String specialRequests) {
+        this.orderId = orderId;
+        this.timestamp = timestamp;
+        this.contactNumber = contactNumber;
+        this.customerName = customerName;
+        this.menuItemIdentifier = menuItemIdentifier;
+        this.menuItemName = menuItemName;
+        this.specialRequests = specialRequests;
+    }
+
+    public long getOrderId() {
+        return orderId;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public long getContactNumber() {
+        return contactNumber;
+    }
+
+    public String getCustomerName() {
+        return customerName;
+    }
+
+    public long getMenuItemIdentifier() {
+        return menuItemIdentifier;
+    }
+
+    public String getMenuItemName() {
+        return menuItemName;
+    }
+
+    public String getSpecialRequests() {
+        return specialRequests;
+    }
+
+    @Override
+    public String toString() {
+        return "Order " + orderId + " for " + customerName + " (0" + contactNumber + "): " + menuItemName
+                + " (" + menuItemIdentifier + ")";
+    }
+}
@@ -0,0 +1,647 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.CRC32;
+
+/**
+ * A persistent store of orders, kept as an append-only log split into segment files. Orders get
+ * increasing identifiers in the order they're stored, so the primary index (identifier, timestamp and
+ * file location per order, in parallel arrays) is sorted by both identifier and time and is searched
+ * by binary search. A hash index on contact number links each order to the customer's previous one,
+ * so a customer's orders are found without a scan.
+ *
+ * <p>When the active segment is full a new one is started. Deleting an order only appends a
+ * tombstone; once more than half of a full segment is deleted orders, or tombstones of orders whose
+ * records are already gone, a background thread rewrites it without them. The indexes are rebuilt from the segments when the store is opened.</p>
+ */
+public class OrderStore implements Closeable {
+    private static final int DEFAULT_SEGMENT_SIZE = 1 << 26;
+    private static final int HEADER_SIZE = 2 * Integer.BYTES;
+    private static final byte ORDER = 1;
+    private static final byte TOMBSTONE = 2;
+    private static final int TOMBSTONE_LENGTH = HEADER_SIZE + 1 + Long.BYTES;
+    // Flags a location whose order has been deleted; REMOVED means its record is gone altogether
+    private static final long DELETED = Long.MIN_VALUE;
+    private static final long REMOVED = -1;
+    private static final int NO_ORDER = -1;
+    private final Path directory;
+    private final int segmentSize;
+    private final Clock clock;
+    private final List<Segment> segments = new ArrayList<>();
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "order-store-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // The primary index, in order of identifier (and so of time)
+    private long[] orderIds = new long[1024];
+    private long[] timestamps = new long[1024];
+    private long[] locations = new long[1024];
+    // previousOrders[i] is the position of the previous order with the same contact number as order i
+    private int[] previousOrders = new int[1024];
+    private int orderCount;
+    private int liveCount;
+    // The contact number hash index, by open addressing: the position of each contact's latest order
+    private long[] contactNumbers = new long[1024];
+    private int[] latestOrders = filled(new int[1024]);
+    private int contactCount;
+    // The location of the tombstone of each deleted order whose record is still in an earlier segment
+    private final Map<Long, Long> tombstones = new HashMap<>();
+    private long nextOrderId = 1;
+    private long lastTimestamp = Long.MIN_VALUE;
+    private boolean recovered;
+
+    /**
+     * Opens (or creates) a store in a directory, with 64MB segments.
+     *
+     * @param directory the directory of the segment files.
+     */
+    public OrderStore(Path directory) {
+        this(directory, DEFAULT_SEGMENT_SIZE, Clock.systemUTC());
+    }
+
+    /**
+     * Opens (or creates) a store in a directory.
+     *
+     * @param directory the directory of the segment files.
+     * @param segmentSize the size at which a segment is closed and a new one started.
+     * @param clock the clock giving the time of each order.
+     * @throws UncheckedIOException if the directory or its segments can't be read.
+     */
+    public OrderStore(Path directory, int segmentSize, Clock clock) {
+        if (segmentSize < 1024) throw new IllegalArgumentException("Segment size must be at least 1024 bytes");
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.clock = clock;
+        try {
+            Files.createDirectories(directory);
+            for (int number = 0; Files.exists(segmentPath(number)); number++) recover(openSegment(number));
+            if (segments.isEmpty()) openSegment(0);
+        } catch (IOException io) {
+            throw new UncheckedIOException(io);
+        }
+        synchronized (this) {
+            recovered = true;
+            for (Segment segment : segments) scheduleCompaction(segment);
+        }
+    }
+
+    /**
+     * Stores an order.
+     *
+     * @param geek the customer.
+     * @param menuItem the ordered item.
+     * @param specialRequests the customer's special requests.
+     * @return the stored order, with its new identifier.
+     * @throws UncheckedIOException if the order can't be written.
+     */
+    public synchronized OrderRecord addOrder(Geek geek, MenuItem menuItem, String specialRequests) {
+        lastTimestamp = Math.max(lastTimestamp, clock.millis());
+        OrderRecord order = new OrderRecord(nextOrderId, lastTimestamp, geek.getOrderNumber(), geek.getName(),
+                menuItem.getMenuItemIdentifier(), menuItem.getMenuItemName(), specialRequests == null ? "" : specialRequests);
+        long location = append(encode(order));
+        index(order.getOrderId(), order.getTimestamp(), order.getContactNumber(), location);
+        return order;
+    }
+
+    /**
+     * Gets an order by its identifier.
+     *
+     * @param orderId the identifier of the order.
+     * @return the order, or null if there is none or it has been deleted.
+     */
+    public synchronized OrderRecord getOrder(long orderId) {
+        int position = Arrays.binarySearch(orderIds, 0, orderCount, orderId);
+        if (position < 0 || locations[position] < 0) return null;
+        return read(locations[position]);
+    }
+
+    /**
+     * Gets all the orders placed with a contact number.
+     *
+     * @param contactNumber the contact number.
+     * @return the orders, newest first.
+     */
+    public synchronized List<OrderRecord> getOrdersByContact(long contactNumber) {
+        List<OrderRecord> orders = new ArrayList<>();
+        int slot = contactSlot(contactNumber);
+        for (int position = latestOrders[slot]; position != NO_ORDER; position = previousOrders[position]) {
+            if (locations[position] >= 0) orders.add(read(locations[position]));
+        }
+        return orders;
+    }
+
+    /**
+     * Gets the orders stored in a period of time.
+     *
+     * @param fromMillis the start of the period, inclusive, in milliseconds since the epoch.
+     * @param toMillis the end of the period, exclusive.
+     * @return the orders, oldest first.
+     */
+    public synchronized List<OrderRecord> getOrdersBetween(long fromMillis, long toMillis) {
+        List<OrderRecord> orders = new ArrayList<>();
+        for (int position = firstAtOrAfter(fromMillis); position < orderCount && timestamps[position] < toMillis; position++) {
+            if (locations[position] >= 0) orders.add(read(locations[position]));
+        }
+        return orders;
+    }
+
+    /**
+     * Deletes an order. Its record stays on disk until the segment holding it is compacted.
+     *
+     * @param orderId the identifier of the order.
+     * @return true if the order existed and was deleted.
+     * @throws UncheckedIOException if the tombstone can't be written.
+     */
+    public synchronized boolean deleteOrder(long orderId) {
+        int position = Arrays.binarySearch(orderIds, 0, orderCount, orderId);
+        if (position < 0 || locations[position] < 0) return false;
+        markDeleted(position, append(encodeTombstone(orderId)));
+        return true;
+    }
+
+    /**
+     * Gets the number of orders stored and not deleted.
+     *
+     * @return the number of orders.
+     */
+    public synchronized int size() {
+        return liveCount;
+    }
+
+    /**
+     * Compacts every full segment holding any deleted orders, on the calling thread.
+     *
+     * @throws UncheckedIOException if a segment can't be rewritten.
+     */
+    public void compact() {
+        List<Segment> candidates = new ArrayList<>();
+        synchronized (this) {
+            for (Segment segment : segments.subList(0, segments.size() - 1)) {
+                if (segment.deadBytes == 0 || segment.compacting) continue;
+                segment.compacting = true;
+                candidates.add(segment);
+            }
+        }
+        for (Segment segment : candidates) compact(segment);
+    }
+
+    @Override
+    public synchronized void close() {
+        compactor.shutdownNow();
+        for (Segment segment : segments) {
+            try {
+                segment.channel.close();
+            } catch (IOException io) {
+                throw new UncheckedIOException(io);
+            }
+        }
+    }
+
+    /**
+     * Adds an order to the primary and contact number indexes.
+     *
+     * @param orderId the identifier of the order.
+     * @param timestamp the time of the order.
+     * @param contactNumber the contact number of the order.
+     * @param location the location of the order's record.
+     */
+    private void index(long orderId, long timestamp, long contactNumber, long location) {
+        if (orderCount == orderIds.length) {
+            int capacity = orderCount + (orderCount >> 1);
+            orderIds = Arrays.copyOf(orderIds, capacity);
+            timestamps = Arrays.copyOf(timestamps, capacity);
+            locations = Arrays.copyOf(locations, capacity);
+            previousOrders = Arrays.copyOf(previousOrders, capacity);
+        }
+        int position = orderCount++;
+        orderIds[position] = orderId;
+        timestamps[position] = timestamp;
+        locations[position] = location;
+        int slot = contactSlot(contactNumber);
+        if (latestOrders[slot] == NO_ORDER) {
+            contactNumbers[slot] = contactNumber;
+            contactCount++;
+        }
+        previousOrders[position] = latestOrders[slot];
+        latestOrders[slot] = position;
+        liveCount++;
+        nextOrderId = Math.max(nextOrderId, orderId + 1);
+        lastTimestamp = Math.max(lastTimestamp, timestamp);
+        if (2 * contactCount > contactNumbers.length) rehashContacts();
+    }
+
+    /**
+     * Marks an order as deleted and counts its record as dead space, scheduling its segment for
+     * compaction if that is now mostly dead. A tombstone in the same segment is dropped along with the
+     * order, so it is dead space too; one in a later segment is needed until the order's segment has
+     * been compacted.
+     *
+     * @param position the position of the order in the primary index.
+     * @param tombstone the location of the order's tombstone.
+     */
+    private void markDeleted(int position, long tombstone) {
+        long location = locations[position];
+        locations[position] = location | DELETED;
+        liveCount--;
+        Segment segment = segments.get(segmentOf(location));
+        segment.deadBytes += recordLength(segment, offsetOf(location));
+        if (segmentOf(tombstone) == segment.number) segment.deadBytes += TOMBSTONE_LENGTH;
+        else tombstones.put(orderIds[position], tombstone);
+        scheduleCompaction(segment);
+    }
+
+    /**
+     * Counts the tombstone of an order whose record has been compacted away as dead space, scheduling
+     * the tombstone's segment for compaction if that is now mostly dead.
+     *
+     * @param orderId the identifier of the order.
+     */
+    private void releaseTombstone(long orderId) {
+        Long tombstone = tombstones.remove(orderId);
+        if (tombstone == null) return;
+        Segment segment = segments.get(segmentOf(tombstone));
+        segment.deadBytes += TOMBSTONE_LENGTH;
+        scheduleCompaction(segment);
+    }
+
+    /**
+     * Compacts a segment in the background if it is full and mostly deleted orders. Nothing is
+     * scheduled while the store is still being opened.
+     *
+     * @param segment the segment.
+     */
+    private void scheduleCompaction(Segment segment) {
+        if (!recovered || segment == active() || segment.compacting || 2 * segment.deadBytes <= segment.size) return;
+        segment.compacting = true;
+        compactor.execute(() -> {
+            try {
+                compact(segment);
+            } catch (UncheckedIOException e) {
+                System.err.println("Order segment " + segment.number + " could not be compacted. \nError message: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Finds the slot of a contact number in the contact index: the slot holding it, or the empty slot
+     * where it would go.
+     *
+     * @param contactNumber the contact number.
+     * @return the slot.
+     */
+    private int contactSlot(long contactNumber) {
+        int mask = contactNumbers.length - 1;
+        int slot = (int) (mix(contactNumber) & mask);
+        while (latestOrders[slot] != NO_ORDER && contactNumbers[slot] != contactNumber) slot = (slot + 1) & mask;
+        return slot;
+    }
+
+    /**
+     * Doubles the size of the contact index.
+     */
+    private void rehashContacts() {
+        long[] oldNumbers = contactNumbers;
+        int[] oldLatest = latestOrders;
+        contactNumbers = new long[oldNumbers.length * 2];
+        latestOrders = filled(new int[oldNumbers.length * 2]);
+        for (int i = 0; i < oldNumbers.length; i++) {
+            if (oldLatest[i] == NO_ORDER) continue;
+            int slot = contactSlot(oldNumbers[i]);
+            contactNumbers[slot] = oldNumbers[i];
+            latestOrders[slot] = oldLatest[i];
+        }
+    }
+
+    /**
+     * Finds the first order stored at or after a time.
+     *
+     * @param millis the time.
+     * @return the position in the primary index.
+     */
+    private int firstAtOrAfter(long millis) {
+        int low = 0;
+        int high = orderCount;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (timestamps[middle] < millis) low = middle + 1;
+            else high = middle;
+        }
+        return low;
+    }
+
+    /**
+     * Appends a record to the active segment, starting a new segment first if it wouldn't fit.
+     *
+     * @param payload the record's contents.
+     * @return the location of the record.
+     */
+    private long append(byte[] payload) {
+        try {
+            Segment segment = active();
+            if (segment.size > 0 && segment.size + HEADER_SIZE + payload.length > segmentSize) segment = openSegment(segments.size());
+            long offset = segment.size;
+            ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + payload.length);
+            record.putInt(payload.length).putInt(checksum(payload, 0, payload.length)).put(payload).flip();
+            while (record.hasRemaining()) segment.channel.write(record, segment.size + record.position());
+            segment.size += record.capacity();
+            return location(segment.number, offset);
+        } catch (IOException io) {
+            throw new UncheckedIOException(io);
+        }
+    }
+
+    /**
+     * Reads an order's record.
+     *
+     * @param location the location of the record.
+     * @return the order.
+     */
+    private OrderRecord read(long location) {
+        Segment segment = segments.get(segmentOf(location));
+        long offset = offsetOf(location);
+        ByteBuffer payload = ByteBuffer.allocate(recordLength(segment, offset) - HEADER_SIZE);
+        readFully(segment.channel, payload, offset + HEADER_SIZE);
+        return decode(payload.flip());
+    }
+
+    /**
+     * Reads the total length of the record at an offset in a segment.
+     *
+     * @param segment the segment.
+     * @param offset the offset of the record.
+     * @return the length of the record, header included.
+     */
+    private static int recordLength(Segment segment, long offset) {
+        ByteBuffer header = ByteBuffer.allocate(Integer.BYTES);
+        readFully(segment.channel, header, offset);
+        return HEADER_SIZE + header.getInt(0);
+    }
+
+    /**
+     * Rebuilds the indexes from a segment's records, cutting off any incomplete or corrupt record at
+     * its end (left by a crash during a write).
+     *
+     * @param segment the segment.
+     * @throws IOException if the segment can't be read.
+     */
+    private void recover(Segment segment) throws IOException {
+        ByteBuffer contents = segment.channel.map(FileChannel.MapMode.READ_ONLY, 0, segment.size);
+        int offset = 0;
+        while (offset + HEADER_SIZE <= contents.limit()) {
+            int length = contents.getInt(offset);
+            if (length <= 0 || offset + HEADER_SIZE + length > contents.limit()) break;
+            if (contents.getInt(offset + Integer.BYTES) != checksum(contents, offset + HEADER_SIZE, length)) break;
+            ByteBuffer payload = contents.slice(offset + HEADER_SIZE, length);
+            long location = location(segment.number, offset);
+            if (payload.get(0) == ORDER) {
+                OrderRecord order = decode(payload);
+                index(order.getOrderId(), order.getTimestamp(), order.getContactNumber(), location);
+            } else {
+                int position = Arrays.binarySearch(orderIds, 0, orderCount, payload.getLong(1));
+                // A tombstone can outlive its order, once the order's segment has been compacted
+                if (position >= 0 && locations[position] >= 0) markDeleted(position, location);
+                else segment.deadBytes += HEADER_SIZE + length;
+            }
+            offset += HEADER_SIZE + length;
+        }
+        if (offset < segment.size) {
+            segment.channel.truncate(offset);
+            segment.size = offset;
+        }
+    }
+
+    /**
+     * Rewrites a full segment without the records of deleted orders. The segment is read and the new
+     * file written without holding the store's lock, so orders can be stored meanwhile; the lock is
+     * only taken to decide which records to keep and to swap the new file in. The new file is moved
+     * over the old one before any location changes, so if it can't be, the segment is left as it was
+     * and the new file is deleted.
+     *
+     * @param segment the segment to compact, already marked as compacting.
+     * @throws UncheckedIOException if the segment can't be rewritten.
+     */
+    private void compact(Segment segment) {
+        Path compacted = directory.resolve(segmentPath(segment.number).getFileName() + ".compacting");
+        try {
+            List<long[]> records = new ArrayList<>();
+            ByteBuffer contents;
+            synchronized (this) {
+                contents = segment.channel.map(FileChannel.MapMode.READ_ONLY, 0, segment.size);
+            }
+            for (int offset = 0; offset < contents.limit(); offset += HEADER_SIZE + contents.getInt(offset)) {
+                records.add(new long[]{offset, contents.getInt(offset), contents.get(offset + HEADER_SIZE), contents.getLong(offset + HEADER_SIZE + 1)});
+            }
+            List<long[]> kept = new ArrayList<>();
+            synchronized (this) {
+                for (long[] record : records) {
+                    int position = Arrays.binarySearch(orderIds, 0, orderCount, record[3]);
+                    if (position < 0) continue;
+                    long location = locations[position];
+                    // Keep live orders, and tombstones of orders whose records are still in other segments
+                    boolean keep = record[2] == ORDER ? location >= 0
+                            : location != REMOVED && segmentOf(location & ~DELETED) != segment.number;
+                    if (keep) kept.add(record);
+                }
+            }
+            long[] newOffsets = new long[kept.size()];
+            try (FileChannel channel = FileChannel.open(compacted, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                long size = 0;
+                for (int i = 0; i < kept.size(); i++) {
+                    long[] record = kept.get(i);
+                    ByteBuffer bytes = contents.slice((int) record[0], HEADER_SIZE + (int) record[1]);
+                    newOffsets[i] = size;
+                    while (bytes.hasRemaining()) size += channel.write(bytes, size);
+                }
+                channel.force(true);
+            }
+            synchronized (this) {
+                // Opened before the move, so the channel follows the file to its new name
+                FileChannel channel = FileChannel.open(compacted, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                try {
+                    Files.move(compacted, segmentPath(segment.number), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (IOException io) {
+                    channel.close();
+                    throw io;
+                }
+                FileChannel old = segment.channel;
+                segment.channel = channel;
+                segment.size = channel.size();
+                Set<Long> keptOrders = new HashSet<>();
+                long deadBytes = 0;
+                for (int i = 0; i < kept.size(); i++) {
+                    long[] record = kept.get(i);
+                    long moved = location(segment.number, newOffsets[i]);
+                    if (record[2] != ORDER) {
+                        // Dead space if its order's record was compacted away while the new file was written
+                        if (tombstones.containsKey(record[3])) tombstones.put(record[3], moved);
+                        else deadBytes += HEADER_SIZE + record[1];
+                        continue;
+                    }
+                    int position = Arrays.binarySearch(orderIds, 0, orderCount, record[3]);
+                    // An order deleted while the new file was written stays deleted
+                    if (locations[position] < 0) {
+                        locations[position] = moved | DELETED;
+                        deadBytes += HEADER_SIZE + record[1];
+                    } else locations[position] = moved;
+                    keptOrders.add(record[3]);
+                }
+                for (long[] record : records) {
+                    if (record[2] != ORDER || keptOrders.contains(record[3])) continue;
+                    int position = Arrays.binarySearch(orderIds, 0, orderCount, record[3]);
+                    if (position >= 0) locations[position] = REMOVED;
+                    releaseTombstone(record[3]);
+                }
+                segment.deadBytes = deadBytes;
+                old.close();
+            }
+        } catch (IOException io) {
+            try {
+                Files.deleteIfExists(compacted);
+            } catch (IOException cleanup) {
+                io.addSuppressed(cleanup);
+            }
+            throw new UncheckedIOException(io);
+        } finally {
+            synchronized (this) {
+                segment.compacting = false;
+            }
+        }
+    }
+
+    /**
+     * Opens a segment file, creating it if needed, and adds it to the segments.
+     *
+     * @param number the number of the segment.
+     * @return the segment.
+     * @throws IOException if the file can't be opened.
+     */
+    private Segment openSegment(int number) throws IOException {
+        FileChannel channel = FileChannel.open(segmentPath(number), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        Segment segment = new Segment(number, channel, channel.size());
+        segments.add(segment);
+        return segment;
+    }
+
+    private Segment active() {
+        return segments.get(segments.size() - 1);
+    }
+
+    private Path segmentPath(int number) {
+        return directory.resolve(String.format("orders-%06d.seg", number));
+    }
+
+    /**
+     * Encodes an order as a record's contents.
+     *
+     * @param order the order.
+     * @return the encoded order.
+     */
+    private static byte[] encode(OrderRecord order) {
+        byte[] name = order.getCustomerName().getBytes(StandardCharsets.UTF_8);
+        byte[] itemName = order.getMenuItemName().getBytes(StandardCharsets.UTF_8);
+        byte[] requests = order.getSpecialRequests().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(1 + 4 * Long.BYTES + 3 * Integer.BYTES + name.length + itemName.length + requests.length);
+        buffer.put(ORDER).putLong(order.getOrderId()).putLong(order.getTimestamp()).putLong(order.getContactNumber())
+                .putLong(order.getMenuItemIdentifier());
+        for (byte[] text : new byte[][]{name, itemName, requests}) buffer.putInt(text.length).put(text);
+        return buffer.array();
+    }
+
+    private static byte[] encodeTombstone(long orderId) {
+        return ByteBuffer.allocate(1 + Long.BYTES).put(TOMBSTONE).putLong(orderId).array();
+    }
+
+    /**
+     * Decodes an order from a record's contents.
+     *
+     * @param payload the record's contents, starting at its position.
+     * @return the order.
+     */
+    private static OrderRecord decode(ByteBuffer payload) {
+        payload.get();
+        long orderId = payload.getLong();
+        long timestamp = payload.getLong();
+        long contactNumber = payload.getLong();
+        long menuItemIdentifier = payload.getLong();
+        String[] text = new String[3];
+        for (int i = 0; i < text.length; i++) {
+            byte[] bytes = new byte[payload.getInt()];
+            payload.get(bytes);
+            text[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return new OrderRecord(orderId, timestamp, contactNumber, text[0], menuItemIdentifier, text[1], text[2]);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) {
+        try {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0) throw new IOException("Unexpected end of segment");
+            }
+        } catch (IOException io) {
+            throw new UncheckedIOException(io);
+        }
+    }
+
+    private static int checksum(byte[] bytes, int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, offset, length);
+        return (int) crc.getValue();
+    }
+
+    private static int checksum(ByteBuffer buffer, int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(offset, length));
+        return (int) crc.getValue();
+    }
+
+    private static long location(int segment, long offset) {
+        return (long) segment << 32 | offset;
+    }
+
+    private static int segmentOf(long location) {
+        return (int) (location >>> 32);
+    }
+
+    private static long offsetOf(long location) {
+        return location & 0xffffffffL;
+    }
+
+    private static long mix(long key) {
+        key *= 0x9e3779b97f4a7c15L;
+        return key ^ (key >>> 29);
+    }
+
+    private static int[] filled(int[] slots) {
+        Arrays.fill(slots, NO_ORDER);
+        return slots;
+    }
+
+    /**
+     * One segment file of the log.
+     */
+    private static class Segment {
+        private final int number;
+        private FileChannel channel;
+        private long size;
+        private long deadBytes;
+        private boolean compacting;
+
+        private Segment(int number, FileChannel channel, long size) {
+            this.number = number;
+            this.channel = channel;
+            this.size = size;
+        }
+    }
+}
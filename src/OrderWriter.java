@@ -0,0 +1,98 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Places orders: writes the customer's order file, then adds the order to the order store, the order
+ * analytics and the popularity ranking. One writer is shared by every kiosk session in the JVM.
+ */
+public class OrderWriter {
+    private final Path orderDirectory;
+    private final Path orderStoreDirectory;
+    private final OrderAnalytics orderAnalytics = new OrderAnalytics();
+    private final PopularityRanker popularityRanker = new PopularityRanker();
+    private OrderStore orderStore;
+
+    /**
+     * Creates an order writer.
+     *
+     * @param orderDirectory the directory to write the customers' order files to.
+     * @param orderStoreDirectory the directory of the order store, which is opened on first use.
+     */
+    public OrderWriter(Path orderDirectory, Path orderStoreDirectory) {
+        this.orderDirectory = orderDirectory;
+        this.orderStoreDirectory = orderStoreDirectory;
+    }
+
+    /**
+     * Places an order. Once the order file is written the order stands, so a failure to add it to the
+     * order store is only reported. Order files are named by customer, item and the time of the order,
+     * and never overwrite one another, even when two kiosks take the same order at the same moment.
+     *
+     * @param geek the customer.
+     * @param menuItem the item ordered.
+     * @param specialRequests the customer's special requests.
+     * @throws UncheckedIOException if the order file can't be written.
+     */
+    public void submitOrder(Geek geek, MenuItem menuItem, String specialRequests) {
+        String fileName = geek.getName().replace(" ","_")+"_"+menuItem.getMenuItemIdentifier()+"_"+System.currentTimeMillis();
+        String lineToWrite = "Order details:\n\t" +
+                "Name: "+geek.getName()+
+                " (0"+geek.getOrderNumber()+")";
+        if(menuItem.getMenuItemIdentifier()==0) lineToWrite+="\n\nCUSTOM ORDER...\n"+menuItem.getMenuItemInformation();
+        else lineToWrite+="\n\tItem: "+menuItem.getMenuItemName()+ " ("+menuItem.getMenuItemIdentifier()+")";
+        lineToWrite+="\n\nCustomisation Requests:\n"+specialRequests;
+
+        try {
+            for (int copy = 0; ; copy++) {
+                Path path = orderDirectory.resolve(fileName+(copy == 0 ? "" : "-"+copy)+".txt");
+                try {
+                    Files.writeString(path, lineToWrite, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+                    break;
+                } catch (FileAlreadyExistsException exists) {
+                    // Another order with the same name, item and time; try the next free name
+                }
+            }
+        } catch (IOException io) {
+            throw new UncheckedIOException(io);
+        }
+        try {
+            getOrderStore().addOrder(geek, menuItem, specialRequests);
+        } catch (UncheckedIOException io) {
+            System.out.println("Order could not be added to the order store. \nError message: "+io.getMessage());
+        }
+        orderAnalytics.recordOrder(menuItem, specialRequests);
+        if(menuItem.getMenuItemIdentifier()!=0) popularityRanker.recordOrder(menuItem.getMenuItemIdentifier());
+    }
+
+    /**
+     * Gets the store of submitted orders, opening it on first use.
+     *
+     * @return the order store.
+     */
+    public synchronized OrderStore getOrderStore() {
+        if (orderStore == null) orderStore = new OrderStore(orderStoreDirectory);
+        return orderStore;
+    }
+
+    /**
+     * Gets the running statistics of the orders submitted so far.
+     *
+     * @return the order analytics.
+     */
+    public OrderAnalytics getOrderAnalytics() {
+        return orderAnalytics;
+    }
+
+    /**
+     * Gets the ranker scoring items by their recent orders.
+     *
+     * @return the popularity ranker.
+     */
+    public PopularityRanker getPopularityRanker() {
+        return popularityRanker;
+    }
+}
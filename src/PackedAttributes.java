@@ -0,0 +1,207 @@
+import java.util.*;
+
+/**
+ * Packs the attributes of a menu item into primitive values for the columnar menu stores.
+ *
+ * <p>The scalar filters share one int: type (bits 0-1), meat (2-4), dressing (5-7), cheese (8),
+ * pickles (9), cucumber (10), tomato (11) and the bun's dictionary code (12-29). A second int holds a
+ * presence mask with every bit of each field the item carries set, plus bit 30 for sauces and bit 31
+ * for leafy greens. Sauces are a mask of {@link Sauce} ordinals; leafy greens are a dictionary mask.</p>
+ */
+public class PackedAttributes {
+    static final int TYPE_MASK = 0b11;
+    static final int MEAT_SHIFT = 2;
+    static final int MEAT_MASK = 0b111 << MEAT_SHIFT;
+    static final int DRESSING_SHIFT = 5;
+    static final int DRESSING_MASK = 0b111 << DRESSING_SHIFT;
+    static final int CHEESE_BIT = 1 << 8;
+    static final int PICKLES_BIT = 1 << 9;
+    static final int CUCUMBER_BIT = 1 << 10;
+    static final int TOMATO_BIT = 1 << 11;
+    static final int BUN_SHIFT = 12;
+    static final int MAX_BUN_CODE = (1 << 18) - 1;
+    static final int BUN_MASK = MAX_BUN_CODE << BUN_SHIFT;
+    static final int SAUCE_PRESENT = 1 << 30;
+    static final int LEAFY_GREENS_PRESENT = 1 << 31;
+
+    // The order loadMenu puts the filters in, so rebuilt items describe themselves the same way
+    private static final Filter[] LOAD_ORDER = {
+            Filter.TYPE, Filter.BUN, Filter.SAUCE_S, Filter.MEAT, Filter.PICKLES,
+            Filter.CHEESE, Filter.TOMATO, Filter.DRESSING, Filter.LEAFY_GREENS, Filter.CUCUMBER
+    };
+    // Every set of sauces there can be, by mask, so decoding a row takes no lock and makes no set
+    private static final List<Set<Sauce>> SAUCE_SETS = sauceSets();
+
+    /**
+     * Private constructor to prevent instantiation.
+     */
+    private PackedAttributes() { throw new AssertionError(); }
+
+    /**
+     * Gets the bits of the packed attributes that hold the given filter.
+     *
+     * @param filter the filter.
+     * @return the field mask of the filter.
+     */
+    static int fieldMask(Filter filter) {
+        return switch (filter) {
+            case TYPE -> TYPE_MASK;
+            case MEAT -> MEAT_MASK;
+            case DRESSING -> DRESSING_MASK;
+            case CHEESE -> CHEESE_BIT;
+            case PICKLES -> PICKLES_BIT;
+            case CUCUMBER -> CUCUMBER_BIT;
+            case TOMATO -> TOMATO_BIT;
+            case BUN -> BUN_MASK;
+            case SAUCE_S -> SAUCE_PRESENT;
+            case LEAFY_GREENS -> LEAFY_GREENS_PRESENT;
+        };
+    }
+
+    /**
+     * Packs the scalar attributes of an item.
+     *
+     * @param dreamMenuItem the attributes of the item.
+     * @param dictionary the dictionary of the menu the item belongs to.
+     * @return the packed attributes.
+     * @throws IllegalArgumentException if an attribute can't be packed.
+     */
+    public static int pack(DreamMenuItem dreamMenuItem, MenuDictionary dictionary) {
+        int attributes = 0;
+        for (Filter filter : Filter.values()) {
+            if (dreamMenuItem.hasFilter(filter)) attributes |= packValue(filter, dreamMenuItem.getFilter(filter), dictionary);
+        }
+        return attributes;
+    }
+
+    /**
+     * Packs one scalar value in the position of its field.
+     *
+     * @param filter the filter.
+     * @param value the value of the filter.
+     * @param dictionary the dictionary of the menu.
+     * @return the packed value, or 0 for sauces and leafy greens.
+     * @throws IllegalArgumentException if the value has the wrong type or isn't in the dictionary.
+     */
+    static int packValue(Filter filter, Object value, MenuDictionary dictionary) {
+        switch (filter) {
+            case TYPE:
+                if (value instanceof Type type) return type.ordinal();
+                break;
+            case MEAT:
+                if (value instanceof Meat meat) return meat.ordinal() << MEAT_SHIFT;
+                break;
+            case DRESSING:
+                if (value instanceof Dressing dressing) return dressing.ordinal() << DRESSING_SHIFT;
+                break;
+            case CHEESE: case PICKLES: case CUCUMBER: case TOMATO:
+                if (value instanceof Boolean flag) return flag ? fieldMask(filter) : 0;
+                break;
+            case BUN:
+                int code = dictionary.getBunCode(value);
+                if (code > MAX_BUN_CODE) throw new IllegalArgumentException("Too many distinct buns to pack: " + value);
+                if (code >= 0) return code << BUN_SHIFT;
+                break;
+            default:
+                return 0;
+        }
+        throw new IllegalArgumentException("Cannot pack " + filter + ": " + value);
+    }
+
+    /**
+     * Gets the presence mask of an item.
+     *
+     * @param dreamMenuItem the attributes of the item.
+     * @return the mask with the bits of every field the item carries set.
+     */
+    public static int presence(DreamMenuItem dreamMenuItem) {
+        int present = 0;
+        for (Filter filter : Filter.values()) {
+            if (dreamMenuItem.hasFilter(filter)) present |= fieldMask(filter);
+        }
+        return present;
+    }
+
+    /**
+     * Gets the mask of the sauces in a collection. Anything that isn't a {@link Sauce} is left out.
+     *
+     * @param sauces the sauces, or null.
+     * @return the mask with one bit per sauce ordinal.
+     */
+    public static long sauceMask(Object sauces) {
+        long mask = 0;
+        if (sauces instanceof Collection<?> collection) {
+            for (Object sauce : collection) {
+                if (sauce instanceof Sauce s) mask |= 1L << s.ordinal();
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Gets the leafy greens mask of an item.
+     *
+     * @param dreamMenuItem the attributes of the item.
+     * @param dictionary the dictionary of the menu the item belongs to.
+     * @return the mask with one bit per leafy green code.
+     */
+    public static long leafyGreensMask(DreamMenuItem dreamMenuItem, MenuDictionary dictionary) {
+        Object greens = dreamMenuItem.getFilter(Filter.LEAFY_GREENS);
+        return greens instanceof Collection<?> collection ? dictionary.getLeafyGreensMask(collection) : 0;
+    }
+
+    /**
+     * Rebuilds the attributes of an item from its packed form.
+     *
+     * @param attributes the packed scalar attributes.
+     * @param present the presence mask.
+     * @param sauces the sauce mask.
+     * @param leafyGreens the leafy greens mask.
+     * @param dictionary the dictionary of the menu the item belongs to.
+     * @return the attributes of the item.
+     */
+    public static DreamMenuItem unpack(int attributes, int present, long sauces, long leafyGreens, MenuDictionary dictionary) {
+        Map<Filter, Object> filterMap = new LinkedHashMap<>();
+        for (Filter filter : LOAD_ORDER) {
+            if ((present & fieldMask(filter)) == 0) continue;
+            filterMap.put(filter, switch (filter) {
+                case TYPE -> Type.values()[attributes & TYPE_MASK];
+                case MEAT -> Meat.values()[(attributes & MEAT_MASK) >>> MEAT_SHIFT];
+                case DRESSING -> Dressing.values()[(attributes & DRESSING_MASK) >>> DRESSING_SHIFT];
+                case CHEESE, PICKLES, CUCUMBER, TOMATO -> (attributes & fieldMask(filter)) != 0;
+                case BUN -> dictionary.decodeBun((attributes & BUN_MASK) >>> BUN_SHIFT);
+                case SAUCE_S -> decodeSauces(sauces);
+                case LEAFY_GREENS -> dictionary.decodeLeafyGreens(leafyGreens);
+            });
+        }
+        return new DreamMenuItem(filterMap, dictionary);
+    }
+
+    /**
+     * Gets the shared, unmodifiable set of sauces for a mask.
+     *
+     * @param mask the sauce mask.
+     * @return the set of sauces.
+     */
+    static Set<Sauce> decodeSauces(long mask) {
+        return SAUCE_SETS.get((int) mask);
+    }
+
+    /**
+     * Makes the set of sauces for every mask.
+     *
+     * @return the unmodifiable sets, indexed by mask.
+     */
+    private static List<Set<Sauce>> sauceSets() {
+        Sauce[] values = Sauce.values();
+        List<Set<Sauce>> sauceSets = new ArrayList<>(1 << values.length);
+        for (int mask = 0; mask < 1 << values.length; mask++) {
+            Set<Sauce> sauces = EnumSet.noneOf(Sauce.class);
+            for (Sauce sauce : values) {
+                if ((mask & (1 << sauce.ordinal())) != 0) sauces.add(sauce);
+            }
+            sauceSets.add(Collections.unmodifiableSet(sauces));
+        }
+        return List.copyOf(sauceSets);
+    }
+}
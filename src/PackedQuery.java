@@ -0,0 +1,127 @@
+import java.util.*;
+
+/**
+ * Search criteria compiled against the packed attribute layout of {@link PackedAttributes}. Testing an
+ * item is then a mask-and-compare on its scalar attributes, a bitwise AND for each set-valued filter
+ * and a price range check, with the same outcome as {@link DreamMenuItem#matches(DreamMenuItem)}.
+ */
+public class PackedQuery {
+    private final int mask;
+    private final int value;
+    private final int reject;
+    private final long sauces;
+    private final long leafyGreens;
+    private final double minPrice;
+    private final double maxPrice;
+
+    /**
+     * Compiles search criteria for a menu.
+     *
+     * @param dreamMenuItem the search criteria.
+     * @param dictionary the dictionary of the menu being searched.
+     */
+    public PackedQuery(DreamMenuItem dreamMenuItem, MenuDictionary dictionary) {
+        int mask = 0;
+        int value = 0;
+        int reject = 0;
+        long sauces = 0;
+        long leafyGreens = 0;
+        for (Filter filter : Filter.values()) {
+            if (!dreamMenuItem.hasFilter(filter)) continue;
+            Object wanted = dreamMenuItem.getFilter(filter);
+            int field = PackedAttributes.fieldMask(filter);
+            if (filter == Filter.SAUCE_S || filter == Filter.LEAFY_GREENS) {
+                // A set only matches items whose set overlaps it; anything else matches no item carrying the filter
+                if (!(wanted instanceof Collection<?> collection)) reject |= field;
+                else if (filter == Filter.SAUCE_S) sauces = PackedAttributes.sauceMask(collection);
+                else leafyGreens = dictionary.getLeafyGreensMask(collection);
+                mask |= field;
+                continue;
+            }
+            try {
+                value |= PackedAttributes.packValue(filter, wanted, dictionary);
+                mask |= field;
+            } catch (IllegalArgumentException e) {
+                // A value no item can have (e.g. an unknown bun) rules out every item carrying the filter
+                reject |= field;
+            }
+        }
+        this.mask = mask & ~reject;
+        this.value = value;
+        this.reject = reject;
+        this.sauces = sauces;
+        this.leafyGreens = leafyGreens;
+        this.minPrice = dreamMenuItem.getMinPrice();
+        this.maxPrice = dreamMenuItem.getMaxPrice();
+    }
+
+    /**
+     * Tests a packed item against the criteria.
+     *
+     * @param attributes the packed scalar attributes of the item.
+     * @param present the presence mask of the item.
+     * @param sauces the sauce mask of the item.
+     * @param leafyGreens the leafy greens mask of the item.
+     * @param price the price of the item.
+     * @return true if the item matches.
+     */
+    public boolean matches(int attributes, int present, long sauces, long leafyGreens, double price) {
+        if (((attributes ^ value) & mask & present) != 0) return false;
+        if ((present & reject) != 0) return false;
+        if (!matchesSets(present, sauces, leafyGreens)) return false;
+        return !(price < minPrice || price > maxPrice);
+    }
+
+    /**
+     * Tests only the set-valued filters (sauces and leafy greens) of the criteria, for scan engines
+     * that have already tested the scalar attributes and the price.
+     *
+     * @param present the presence mask of the item.
+     * @param sauces the sauce mask of the item.
+     * @param leafyGreens the leafy greens mask of the item.
+     * @return true if the item's sets overlap the wanted ones, or the criteria don't ask for any.
+     */
+    boolean matchesSets(int present, long sauces, long leafyGreens) {
+        if ((present & mask & PackedAttributes.SAUCE_PRESENT) != 0 && (sauces & this.sauces) == 0) return false;
+        return (present & mask & PackedAttributes.LEAFY_GREENS_PRESENT) == 0 || (leafyGreens & this.leafyGreens) != 0;
+    }
+
+    /**
+     * Tells whether the criteria ask for a sauce or leafy greens set, so there are set checks to make.
+     *
+     * @return true if there is a set-valued filter.
+     */
+    boolean hasSets() {
+        return (mask & (PackedAttributes.SAUCE_PRESENT | PackedAttributes.LEAFY_GREENS_PRESENT)) != 0;
+    }
+
+    // The compiled criteria, for scan engines that test many items at once
+
+    int getMask() {
+        return mask;
+    }
+
+    int getValue() {
+        return value;
+    }
+
+    int getReject() {
+        return reject;
+    }
+
+    long getSauces() {
+        return sauces;
+    }
+
+    long getLeafyGreens() {
+        return leafyGreens;
+    }
+
+    double getMinPrice() {
+        return minPrice;
+    }
+
+    double getMaxPrice() {
+        return maxPrice;
+    }
+}
@@ -0,0 +1,145 @@
+import java.time.Clock;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ranks search results by how often each item has been ordered recently. Every order counts for
+ * less as it ages, halving in value each half-life (so rate = ln 2 / half-life).
+ *
+ * <p>Scores use forward decay: an order at time t adds {@code e^(rate*t)} instead of shrinking all
+ * earlier scores, so an order only touches its own item. To stop the sums overflowing, each score is
+ * kept as its logarithm, which grows only linearly with time. Orders update scores with a
+ * compare-and-set on the score's bits, so recording an order never blocks, or is blocked by, a search.</p>
+ */
+public class PopularityRanker {
+    private final ConcurrentHashMap<Long, AtomicLong> logScores = new ConcurrentHashMap<>();
+    private final double decayPerMilli;
+    private final Clock clock;
+
+    /**
+     * Creates a ranker whose orders halve in value every hour.
+     */
+    public PopularityRanker() {
+        this(Duration.ofHours(1), Clock.systemUTC());
+    }
+
+    /**
+     * Creates a ranker.
+     *
+     * @param halfLife the time for an order's value to halve.
+     * @param clock the clock giving the time of each order.
+     */
+    public PopularityRanker(Duration halfLife, Clock clock) {
+        if (halfLife.isZero() || halfLife.isNegative()) throw new IllegalArgumentException("Half-life must be positive");
+        this.decayPerMilli = Math.log(2) / halfLife.toMillis();
+        this.clock = clock;
+    }
+
+    /**
+     * Records an order of an item, adding e^(rate*t) to its score.
+     *
+     * @param menuItemIdentifier the identifier of the ordered item.
+     */
+    public void recordOrder(long menuItemIdentifier) {
+        double logWeight = decayPerMilli * clock.millis();
+        AtomicLong score = logScores.computeIfAbsent(menuItemIdentifier, id -> new AtomicLong(Double.doubleToRawLongBits(Double.NEGATIVE_INFINITY)));
+        long current;
+        long updated;
+        do {
+            current = score.get();
+            updated = Double.doubleToRawLongBits(logAdd(Double.longBitsToDouble(current), logWeight));
+        } while (!score.compareAndSet(current, updated));
+    }
+
+    /**
+     * Gets an item's score: the number of times it has been ordered, each order decayed by its age.
+     *
+     * @param menuItemIdentifier the identifier of the item.
+     * @return the decayed order count, 0 if never ordered.
+     */
+    public double getScore(long menuItemIdentifier) {
+        return Math.exp(logScore(menuItemIdentifier) - decayPerMilli * clock.millis());
+    }
+
+    /**
+     * Selects the k most popular of the matching items, most popular first, without sorting all of
+     * them: a heap of k items is kept while going through the matches, so this costs O(m log k) for m
+     * matches plus O(k log k) to put the k in order. Equally popular items keep their order in the
+     * matches, and items never ordered fill any places left, in their original order.
+     *
+     * @param matching the matching items.
+     * @param k the number of items to select.
+     * @return the k (or fewer) most popular items.
+     */
+    public List<MenuItem> rank(List<MenuItem> matching, int k) {
+        if (k <= 0) return new ArrayList<>();
+        // Scores are compared in log space; the common e^(-rate*now) factor doesn't change the order
+        double[] scores = new double[matching.size()];
+        Comparator<Integer> byPopularity = Comparator.<Integer>comparingDouble(i -> scores[i]).thenComparing(Comparator.<Integer>reverseOrder());
+        PriorityQueue<Integer> heap = new PriorityQueue<>(k, byPopularity);
+        List<MenuItem> unordered = new ArrayList<>();
+        for (int i = 0; i < matching.size(); i++) {
+            MenuItem menuItem = matching.get(i);
+            scores[i] = logScore(menuItem.getMenuItemIdentifier());
+            if (scores[i] == Double.NEGATIVE_INFINITY) {
+                if (unordered.size() < k) unordered.add(menuItem);
+                continue;
+            }
+            if (heap.size() < k) heap.add(i);
+            else if (byPopularity.compare(i, heap.peek()) > 0) {
+                heap.poll();
+                heap.add(i);
+            }
+        }
+        List<Integer> top = new ArrayList<>(heap);
+        top.sort(byPopularity.reversed());
+        List<MenuItem> ranked = new ArrayList<>(k);
+        for (int i : top) ranked.add(matching.get(i));
+        for (MenuItem menuItem : unordered) {
+            if (ranked.size() == k) break;
+            ranked.add(menuItem);
+        }
+        return ranked;
+    }
+
+    /**
+     * Puts the k most popular matching items first, followed by the rest in their original order.
+     *
+     * @param matching the matching items.
+     * @param k the number of items to move to the front.
+     * @return the reordered items.
+     */
+    public List<MenuItem> promote(List<MenuItem> matching, int k) {
+        List<MenuItem> ranked = rank(matching, k);
+        Set<MenuItem> promoted = Collections.newSetFromMap(new IdentityHashMap<>());
+        promoted.addAll(ranked);
+        for (MenuItem menuItem : matching) if (!promoted.contains(menuItem)) ranked.add(menuItem);
+        return ranked;
+    }
+
+    /**
+     * Gets the logarithm of an item's undecayed score.
+     *
+     * @param menuItemIdentifier the identifier of the item.
+     * @return the log score, negative infinity if never ordered.
+     */
+    private double logScore(long menuItemIdentifier) {
+        AtomicLong score = logScores.get(menuItemIdentifier);
+        return score == null ? Double.NEGATIVE_INFINITY : Double.longBitsToDouble(score.get());
+    }
+
+    /**
+     * Computes log(e^a + e^b) without overflow.
+     *
+     * @param a the first logarithm.
+     * @param b the second logarithm.
+     * @return the logarithm of the sum.
+     */
+    private static double logAdd(double a, double b) {
+        double larger = Math.max(a, b);
+        if (larger == Double.NEGATIVE_INFINITY) return larger;
+        return larger + Math.log1p(Math.exp(Math.min(a, b) - larger));
+    }
+}
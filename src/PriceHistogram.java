@@ -0,0 +1,208 @@
+import java.util.Arrays;
+
+/**
+ * The distribution of a set of prices, kept up to date as prices are added and removed: every price
+ * in a sorted array, so the number in any range is found by two binary searches, plus counts per
+ * fixed-width bucket for drawing a histogram. Prices that aren't numbers are left out. Many prices
+ * changed at once (e.g. while loading a menu) are sorted and merged in one pass rather than inserted
+ * one at a time.
+ */
+public class PriceHistogram {
+    // The last bucket also holds every price above it, so one mistyped price can't size the array
+    private static final int MAX_BUCKETS = 1024;
+    private final double bucketWidth;
+    private double[] prices = new double[64];
+    private int size;
+    private int[] bucketCounts = new int[0];
+
+    /**
+     * Creates an empty histogram.
+     *
+     * @param bucketWidth the width of each bucket in dollars.
+     */
+    public PriceHistogram(double bucketWidth) {
+        if (!(bucketWidth > 0)) throw new IllegalArgumentException("Bucket width must be positive");
+        this.bucketWidth = bucketWidth;
+    }
+
+    /**
+     * Adds a price.
+     *
+     * @param price the price.
+     */
+    synchronized void add(double price) {
+        if (Double.isNaN(price)) return;
+        if (size == prices.length) prices = Arrays.copyOf(prices, size + (size >> 1));
+        int index = countBelow(price);
+        System.arraycopy(prices, index, prices, index + 1, size - index);
+        prices[index] = price;
+        size++;
+        countIn(price, 1);
+    }
+
+    /**
+     * Adds many prices.
+     *
+     * @param added the prices, in any order; the array is sorted in place.
+     * @param count the number of prices at the start of the array.
+     */
+    synchronized void addAll(double[] added, int count) {
+        count = sortNumbers(added, count);
+        if (count == 0) return;
+        double[] merged = new double[Math.max(prices.length, size + count)];
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        while (i < size && j < count) merged[k++] = prices[i] <= added[j] ? prices[i++] : added[j++];
+        while (i < size) merged[k++] = prices[i++];
+        while (j < count) merged[k++] = added[j++];
+        prices = merged;
+        size = k;
+        for (j = 0; j < count; j++) countIn(added[j], 1);
+    }
+
+    /**
+     * Removes many prices, each as often as it is given and present.
+     *
+     * @param removed the prices, in any order; the array is sorted in place.
+     * @param count the number of prices at the start of the array.
+     */
+    synchronized void removeAll(double[] removed, int count) {
+        count = sortNumbers(removed, count);
+        int kept = 0;
+        int j = 0;
+        for (int i = 0; i < size; i++) {
+            while (j < count && removed[j] < prices[i]) j++;
+            if (j < count && removed[j] == prices[i]) {
+                countIn(prices[i], -1);
+                j++;
+            } else {
+                prices[kept++] = prices[i];
+            }
+        }
+        size = kept;
+    }
+
+    /**
+     * Removes a price, if present.
+     *
+     * @param price the price.
+     */
+    synchronized void remove(double price) {
+        if (Double.isNaN(price)) return;
+        int index = countBelow(price);
+        if (index == size || prices[index] != price) return;
+        System.arraycopy(prices, index + 1, prices, index, size - index - 1);
+        size--;
+        countIn(price, -1);
+    }
+
+    /**
+     * Gets the number of prices.
+     *
+     * @return the number of prices.
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Counts the prices in a range, with the same bounds a search uses.
+     *
+     * @param minPrice the lowest price, inclusive.
+     * @param maxPrice the highest price, inclusive.
+     * @return the number of prices in the range.
+     */
+    public synchronized int count(double minPrice, double maxPrice) {
+        if (maxPrice < minPrice) return 0;
+        return countAtMost(maxPrice) - countBelow(minPrice);
+    }
+
+    /**
+     * Gets the lowest price.
+     *
+     * @return the lowest price, or NaN if there are none.
+     */
+    public synchronized double getMinPrice() {
+        return size == 0 ? Double.NaN : prices[0];
+    }
+
+    /**
+     * Gets the highest price.
+     *
+     * @return the highest price, or NaN if there are none.
+     */
+    public synchronized double getMaxPrice() {
+        return size == 0 ? Double.NaN : prices[size - 1];
+    }
+
+    /**
+     * Gets the width of each bucket.
+     *
+     * @return the bucket width in dollars.
+     */
+    public double getBucketWidth() {
+        return bucketWidth;
+    }
+
+    /**
+     * Gets the number of prices in each bucket. Bucket i holds the prices from i times the bucket
+     * width up to (but not including) i + 1 times it; negative prices are counted in bucket 0, and the
+     * last of the 1024 buckets also counts every higher price.
+     *
+     * @return the counts, from the cheapest bucket to the most expensive.
+     */
+    public synchronized int[] getBucketCounts() {
+        int buckets = bucketCounts.length;
+        while (buckets > 0 && bucketCounts[buckets - 1] == 0) buckets--;
+        return Arrays.copyOf(bucketCounts, buckets);
+    }
+
+    private void countIn(double price, int change) {
+        int bucket = (int) Math.max(0, Math.min(MAX_BUCKETS - 1, Math.floor(price / bucketWidth)));
+        if (bucket >= bucketCounts.length) bucketCounts = Arrays.copyOf(bucketCounts, Math.min(MAX_BUCKETS, Math.max(bucket + 1, 2 * bucketCounts.length)));
+        bucketCounts[bucket] += change;
+    }
+
+    /**
+     * Sorts the start of an array, dropping the values that aren't numbers.
+     *
+     * @param values the array.
+     * @param count the number of values at its start.
+     * @return the number of values left, sorted, at its start.
+     */
+    private static int sortNumbers(double[] values, int count) {
+        int numbers = 0;
+        for (int i = 0; i < count; i++) if (!Double.isNaN(values[i])) values[numbers++] = values[i];
+        Arrays.sort(values, 0, numbers);
+        return numbers;
+    }
+
+    /**
+     * Counts the prices below a value (which is also where the value would be inserted).
+     *
+     * @param price the value.
+     * @return the number of prices less than it.
+     */
+    private int countBelow(double price) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (prices[middle] < price) low = middle + 1;
+            else high = middle;
+        }
+        return low;
+    }
+
+    private int countAtMost(double price) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (prices[middle] <= price) low = middle + 1;
+            else high = middle;
+        }
+        return low;
+    }
+}
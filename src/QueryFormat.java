@@ -0,0 +1,232 @@
+import java.util.*;
+
+/**
+ * Reads and writes search criteria as single lines of text, for running searches without the GUI.
+ * A line is a list of {@code key=value} pairs separated by semicolons, for example
+ * {@code type=burger; bun=brioche; sauces=bbq,garlic; cheese=yes; max=20}. The keys are type, bun,
+ * meat, cheese, pickles, cucumber, tomato, dressing, greens, sauces, min, max, limit and text (words
+ * to find in the items' names and descriptions, see {@link TextIndex}); any left out aren't searched on. Values are spelled as in the menu file.
+ * A value in double quotes is taken as it is, as a string, rather than read like the menu file; this
+ * is how {@link #format(DreamMenuItem)} keeps criteria holding text (e.g. a dressing chosen in the
+ * GUI) exactly as they were searched, with any {@code % ; , " =} or line breaks written as
+ * {@code %XX}.
+ */
+public class QueryFormat {
+    private static final Map<String, Filter> KEYS = new LinkedHashMap<>();
+
+    static {
+        KEYS.put("type", Filter.TYPE);
+        KEYS.put("bun", Filter.BUN);
+        KEYS.put("meat", Filter.MEAT);
+        KEYS.put("cheese", Filter.CHEESE);
+        KEYS.put("pickles", Filter.PICKLES);
+        KEYS.put("cucumber", Filter.CUCUMBER);
+        KEYS.put("tomato", Filter.TOMATO);
+        KEYS.put("dressing", Filter.DRESSING);
+        KEYS.put("greens", Filter.LEAFY_GREENS);
+        KEYS.put("sauces", Filter.SAUCE_S);
+    }
+
+    /**
+     * Private constructor to prevent instantiation.
+     */
+    private QueryFormat() { throw new AssertionError(); }
+
+    /**
+     * Parses a query line into search criteria. Without min/max the price range is unbounded.
+     *
+     * @param line the query line.
+     * @return the search criteria.
+     * @throws IllegalArgumentException if the line has an unknown key or a value that can't be parsed.
+     */
+    public static DreamMenuItem parse(String line) {
+        Map<Filter, Object> filterMap = new LinkedHashMap<>();
+        double minPrice = 0;
+        double maxPrice = Double.MAX_VALUE;
+        for (String pair : line.split(";")) {
+            if (pair.isBlank()) continue;
+            int equals = pair.indexOf('=');
+            if (equals < 0) throw new IllegalArgumentException("Expected key=value but found: " + pair.strip());
+            String key = pair.substring(0, equals).strip().toLowerCase();
+            String value = pair.substring(equals + 1).strip();
+            switch (key) {
+                case "min" -> minPrice = Double.parseDouble(value);
+                case "max" -> maxPrice = Double.parseDouble(value);
+                // Only checked here; the limit and text belong to the search, not the criteria (see parseLimit, parseText)
+                case "limit" -> Integer.parseInt(value);
+                case "text" -> { }
+                default -> {
+                    Filter filter = KEYS.get(key);
+                    if (filter == null) throw new IllegalArgumentException("Unknown key: " + key);
+                    filterMap.put(filter, parseValue(filter, value));
+                }
+            }
+        }
+        return new DreamMenuItem(filterMap, minPrice, maxPrice);
+    }
+
+    /**
+     * Gets the result limit of a query line.
+     *
+     * @param line the query line.
+     * @return the limit, or -1 if the line has none.
+     */
+    public static int parseLimit(String line) {
+        String limit = find(line, "limit");
+        return limit == null ? -1 : Integer.parseInt(limit);
+    }
+
+    /**
+     * Gets the text query of a query line.
+     *
+     * @param line the query line.
+     * @return the words to find in the items' names and descriptions, or null if the line has none.
+     */
+    public static String parseText(String line) {
+        return find(line, "text");
+    }
+
+    /**
+     * Finds the value of a key that belongs to the search rather than the criteria.
+     *
+     * @param line the query line.
+     * @param key the key.
+     * @return the value, or null if the line doesn't have the key.
+     */
+    private static String find(String line, String key) {
+        for (String pair : line.split(";")) {
+            int equals = pair.indexOf('=');
+            if (equals >= 0 && pair.substring(0, equals).strip().equalsIgnoreCase(key)) {
+                return pair.substring(equals + 1).strip();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Parses the value of one filter the way loadMenu reads it from the menu file.
+     *
+     * @param filter the filter.
+     * @param value the text of the value.
+     * @return the value of the filter.
+     */
+    private static Object parseValue(Filter filter, String value) {
+        if (isQuoted(value)) return unquote(value);
+        return switch (filter) {
+            case TYPE -> Type.valueOf(value.toUpperCase());
+            case MEAT -> Meat.valueOf(value.toUpperCase());
+            case DRESSING -> Dressing.valueOf(value.toUpperCase().replace(" ", "_"));
+            case BUN -> value.toLowerCase();
+            case CHEESE, PICKLES, CUCUMBER, TOMATO -> parseBoolean(value);
+            case LEAFY_GREENS -> {
+                Set<String> greens = new HashSet<>();
+                for (String green : value.split(",")) {
+                    if (isQuoted(green.strip())) greens.add(unquote(green.strip()));
+                    else if (!green.isBlank()) greens.add(green.toLowerCase().strip());
+                }
+                yield greens;
+            }
+            case SAUCE_S -> {
+                Set<Sauce> sauces = EnumSet.noneOf(Sauce.class);
+                Set<Object> text = new HashSet<>();
+                for (String sauce : value.split(",")) {
+                    if (isQuoted(sauce.strip())) text.add(unquote(sauce.strip()));
+                    else if (!sauce.isBlank()) sauces.add(Sauce.valueOf(sauce.toUpperCase().strip()));
+                }
+                if (text.isEmpty()) yield sauces;
+                text.addAll(sauces);
+                yield text;
+            }
+        };
+    }
+
+    private static boolean isQuoted(String value) {
+        return value.length() >= 2 && value.charAt(0) == '"' && value.charAt(value.length() - 1) == '"';
+    }
+
+    /**
+     * Quotes a string value, escaping the characters that separate or quote values.
+     *
+     * @param text the value.
+     * @return the quoted value.
+     */
+    private static String quote(String text) {
+        StringBuilder quoted = new StringBuilder(text.length() + 2).append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if ("%;,\"=".indexOf(c) >= 0 || c < ' ') quoted.append(String.format("%%%02X", (int) c));
+            else quoted.append(c);
+        }
+        return quoted.append('"').toString();
+    }
+
+    /**
+     * Reverses {@link #quote(String)}.
+     *
+     * @param value the quoted value.
+     * @return the value.
+     */
+    private static String unquote(String value) {
+        String text = value.substring(1, value.length() - 1);
+        StringBuilder unquoted = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '%' && i + 2 < text.length()) {
+                unquoted.append((char) Integer.parseInt(text.substring(i + 1, i + 3), 16));
+                i += 2;
+            } else {
+                unquoted.append(c);
+            }
+        }
+        return unquoted.toString();
+    }
+
+    /**
+     * Parses a yes/no (or true/false) value.
+     *
+     * @param value the text of the value.
+     * @return the boolean value.
+     */
+    private static boolean parseBoolean(String value) {
+        return switch (value.toLowerCase()) {
+            case "yes", "true" -> true;
+            case "no", "false" -> false;
+            default -> throw new IllegalArgumentException("Expected yes or no but found: " + value);
+        };
+    }
+
+    /**
+     * Writes search criteria as a query line that {@link #parse(String)} reads back to the same criteria.
+     *
+     * @param dreamMenuItem the search criteria.
+     * @return the query line.
+     */
+    public static String format(DreamMenuItem dreamMenuItem) {
+        StringJoiner line = new StringJoiner("; ");
+        for (Map.Entry<String, Filter> key : KEYS.entrySet()) {
+            if (!dreamMenuItem.hasFilter(key.getValue())) continue;
+            line.add(key.getKey() + "=" + formatValue(dreamMenuItem.getFilter(key.getValue())));
+        }
+        line.add("min=" + dreamMenuItem.getMinPrice());
+        line.add("max=" + dreamMenuItem.getMaxPrice());
+        return line.toString();
+    }
+
+    /**
+     * Writes the value of one filter.
+     *
+     * @param value the value of the filter.
+     * @return the text of the value.
+     */
+    private static String formatValue(Object value) {
+        if (value instanceof Boolean flag) return flag ? "yes" : "no";
+        if (value instanceof String text) return quote(text);
+        if (value instanceof Enum<?> constant) return constant.name().toLowerCase().replace("_", " ");
+        if (value instanceof Collection<?> collection) {
+            StringJoiner values = new StringJoiner(",");
+            for (Object element : collection) values.add(formatValue(element));
+            return values.toString();
+        }
+        return String.valueOf(value);
+    }
+}
@@ -0,0 +1,62 @@
+import java.util.Arrays;
+
+/**
+ * The order in which a search checks its filters against each item, most selective first, with the
+ * estimated number of items passing each. {@link #toString()} describes the plan for debugging.
+ */
+public class QueryPlan {
+    private final Filter[] order;
+    private final int[] estimates;
+    private final int itemCount;
+
+    /**
+     * Creates a query plan.
+     *
+     * @param order the filters in the order to check them.
+     * @param estimates the estimated number of items passing each filter on its own.
+     * @param itemCount the number of items on the menu.
+     */
+    QueryPlan(Filter[] order, int[] estimates, int itemCount) {
+        this.order = order;
+        this.estimates = estimates;
+        this.itemCount = itemCount;
+    }
+
+    /**
+     * Gets the filters in the order to check them. The array is shared, so it must not be changed.
+     *
+     * @return the filters.
+     */
+    Filter[] getOrder() {
+        return order;
+    }
+
+    /**
+     * Gets the filters in the order to check them.
+     *
+     * @return a copy of the filters.
+     */
+    public Filter[] getFilters() {
+        return Arrays.copyOf(order, order.length);
+    }
+
+    /**
+     * Gets the estimated number of items passing a filter on its own.
+     *
+     * @param position the position of the filter in the plan.
+     * @return the estimated number of items.
+     */
+    public int getEstimate(int position) {
+        return estimates[position];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder plan = new StringBuilder("Check ");
+        for (int i = 0; i < order.length; i++) {
+            if (i > 0) plan.append(" -> ");
+            plan.append(order[i].name()).append(" (~").append(estimates[i]).append('/').append(itemCount).append(" pass)");
+        }
+        return order.length == 0 ? "Check nothing (every item passes)" : plan.toString();
+    }
+}
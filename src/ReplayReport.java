@@ -0,0 +1,151 @@
+import java.util.*;
+
+/**
+ * The latencies measured by a {@link SessionReplayer}, per operation: "search" (finding the matches of
+ * a recorded search), "order" (placing a recorded order) and "lag" (how late each event started
+ * compared with its place in the recording, which grows when the replay runs out of threads), plus
+ * "suggest" (finding the alternatives to a search that found nothing). It also counts the searches
+ * that found a different number of items than when they were recorded, which means the replay isn't
+ * reproducing the recorded load (e.g. it was run against a different menu).
+ */
+public class ReplayReport {
+    private final Map<String, long[]> latencies = new LinkedHashMap<>();
+    private final Map<String, Integer> counts = new LinkedHashMap<>();
+    private int skipped;
+    private int mismatches;
+    private long elapsedNanos;
+    private boolean finished;
+
+    /**
+     * Records the latency of an operation.
+     *
+     * @param operation the operation.
+     * @param nanos the latency in nanoseconds.
+     */
+    synchronized void record(String operation, long nanos) {
+        long[] values = latencies.computeIfAbsent(operation, o -> new long[64]);
+        int count = counts.getOrDefault(operation, 0);
+        if (count == values.length) latencies.put(operation, values = Arrays.copyOf(values, count * 2));
+        values[count] = nanos;
+        counts.put(operation, count + 1);
+    }
+
+    /**
+     * Counts an event that couldn't be replayed, e.g. an order for an item no longer on the menu.
+     */
+    synchronized void skip() {
+        skipped++;
+    }
+
+    /**
+     * Counts a search that found a different number of items than when it was recorded.
+     */
+    synchronized void mismatch() {
+        mismatches++;
+    }
+
+    /**
+     * Ends the replay, sorting the latencies so percentiles can be read off.
+     *
+     * @param elapsedNanos how long the replay took.
+     */
+    synchronized void finish(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+        for (Map.Entry<String, long[]> entry : latencies.entrySet()) {
+            entry.setValue(Arrays.copyOf(entry.getValue(), counts.get(entry.getKey())));
+            Arrays.sort(entry.getValue());
+        }
+        finished = true;
+    }
+
+    /**
+     * Gets the operations measured.
+     *
+     * @return the operations, in the order first measured.
+     */
+    public synchronized Set<String> getOperations() {
+        return Collections.unmodifiableSet(new LinkedHashSet<>(latencies.keySet()));
+    }
+
+    /**
+     * Gets the number of times an operation was measured.
+     *
+     * @param operation the operation.
+     * @return the number of measurements.
+     */
+    public synchronized int getCount(String operation) {
+        return counts.getOrDefault(operation, 0);
+    }
+
+    /**
+     * Gets a percentile of an operation's latency, by the nearest-rank method.
+     *
+     * @param operation the operation.
+     * @param percentile the percentile, from 0 to 100.
+     * @return the latency in nanoseconds, or 0 if the operation wasn't measured.
+     * @throws IllegalStateException if the replay hasn't finished.
+     */
+    public synchronized long getPercentile(String operation, double percentile) {
+        if (!finished) throw new IllegalStateException("Replay still running");
+        long[] values = latencies.get(operation);
+        if (values == null || values.length == 0) return 0;
+        int rank = (int) Math.ceil(percentile / 100 * values.length);
+        return values[Math.max(0, Math.min(values.length - 1, rank - 1))];
+    }
+
+    /**
+     * Gets the mean latency of an operation.
+     *
+     * @param operation the operation.
+     * @return the mean in nanoseconds, or 0 if the operation wasn't measured.
+     */
+    public synchronized double getMean(String operation) {
+        int count = getCount(operation);
+        if (count == 0) return 0;
+        long[] values = latencies.get(operation);
+        double sum = 0;
+        for (int i = 0; i < count; i++) sum += values[i];
+        return sum / count;
+    }
+
+    /**
+     * Gets the number of events that couldn't be replayed.
+     *
+     * @return the number of events skipped.
+     */
+    public synchronized int getSkipped() {
+        return skipped;
+    }
+
+    /**
+     * Gets the number of searches that found a different number of items than when recorded.
+     *
+     * @return the number of mismatched searches.
+     */
+    public synchronized int getMismatches() {
+        return mismatches;
+    }
+
+    /**
+     * Gets how long the replay took.
+     *
+     * @return the time in nanoseconds.
+     */
+    public synchronized long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder report = new StringBuilder(String.format("%-8s %8s %10s %10s %10s %10s %10s %10s  (microseconds)%n",
+                "", "count", "mean", "p50", "p90", "p99", "p99.9", "max"));
+        for (String operation : latencies.keySet()) {
+            report.append(String.format("%-8s %8d %10.1f %10.1f %10.1f %10.1f %10.1f %10.1f%n", operation, getCount(operation),
+                    getMean(operation) / 1e3, getPercentile(operation, 50) / 1e3, getPercentile(operation, 90) / 1e3,
+                    getPercentile(operation, 99) / 1e3, getPercentile(operation, 99.9) / 1e3, getPercentile(operation, 100) / 1e3));
+        }
+        report.append(String.format("Replayed in %.2f s, %d events skipped", elapsedNanos / 1e9, skipped));
+        if (mismatches > 0) report.append(String.format("%n%d searches found a different number of items than recorded", mismatches));
+        return report.toString();
+    }
+}
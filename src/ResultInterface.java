@@ -10,14 +10,16 @@ import java.util.Objects;
  * menu items to the user and allowing them to make a selection.
  */
 public class ResultInterface {
-    private static final int PREVIEW_WIDTH = 250;
-    private static final int PREVIEW_HEIGHT = 300;
+    // Package-private so the pictures can be read ahead at this size
+    static final int PREVIEW_WIDTH = 250;
+    static final int PREVIEW_HEIGHT = 300;
     private static final int INFO_WIDTH = 400;
     private static final int INFO_HEIGHT = 300;
     private static final int SCROLL_WIDTH = 700;
     private static final int SCROLL_HEIGHT = 400;
     private final JFrame frame;
     private final GridBagConstraints gbc;
+    private final ImageCache imageCache;
     private String state;
     private MenuItem selectedMenuItem;
 
@@ -30,6 +32,17 @@ public class ResultInterface {
      * @param menuItems The list of menu items to be displayed in the GUI.
      */
     public ResultInterface(List<MenuItem> menuItems) {
+        this(menuItems, new ImageCache(0));
+    }
+
+    /**
+     * Constructs a new ResultGUI whose images come from a cache shared with other windows.
+     *
+     * @param menuItems The list of menu items to be displayed in the GUI.
+     * @param imageCache The cache of scaled images.
+     */
+    public ResultInterface(List<MenuItem> menuItems, ImageCache imageCache) {
+        this.imageCache = imageCache;
         // Prepare the main frame for the GUI.
         frame = InterfaceUtilities.createFrame();
 
@@ -161,7 +174,7 @@ public class ResultInterface {
             panel.setBorder(BorderFactory.createLineBorder(Color.BLACK));
 
             // Add image to the panel
-            Image image = InterfaceUtilities.createImage("images/" + menuItems.get(i).getMenuItemIdentifier() + ".png", PREVIEW_WIDTH, PREVIEW_HEIGHT);
+            Image image = imageCache.getImage("images/" + menuItems.get(i).getMenuItemIdentifier() + ".png", PREVIEW_WIDTH, PREVIEW_HEIGHT);
             JLabel imgLabel = InterfaceUtilities.createLabel();
             imgLabel.setIcon(new ImageIcon(image));
             InterfaceUtilities.setGridBagConstraints(1, 0, 1, 10, gbc);
@@ -227,4 +240,4 @@ public class ResultInterface {
     public MenuItem getSelectedMenuItem() {
         return selectedMenuItem;
     }
-}
\ No newline at end of file
+}
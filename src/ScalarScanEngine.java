@@ -0,0 +1,14 @@
+/**
+ * Tests one item at a time, stopping at the first criterion it fails. Works on any JVM.
+ */
+public class ScalarScanEngine implements ScanEngine {
+    @Override
+    public int scan(PackedQuery query, int[] attributes, int[] present, long[] sauces, long[] leafyGreens, double[] prices,
+                    int from, int to, int[] hits) {
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            if (query.matches(attributes[i], present[i], sauces[i], leafyGreens[i], prices[i])) hits[count++] = i;
+        }
+        return count;
+    }
+}
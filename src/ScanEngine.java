@@ -0,0 +1,55 @@
+/**
+ * Scans the columns of a {@link MenuColumns} for the items matching a compiled query. Every engine
+ * gives identical results.
+ *
+ * <p>The vector engine ({@code src-vector/VectorScanEngine.java}) uses the incubating Vector API, so it
+ * is built separately with {@code --add-modules jdk.incubator.vector} and only used when the JVM also
+ * runs with that module. Otherwise, or with {@code -Dmenu.scanEngine=scalar}, the scalar engine is used.</p>
+ */
+public interface ScanEngine {
+    String VECTOR_ENGINE_CLASS = "VectorScanEngine";
+    String VECTOR_MODULE = "jdk.incubator.vector";
+
+    /**
+     * Scans part of the columns for items matching a query.
+     *
+     * @param query the compiled query.
+     * @param attributes the packed scalar attributes column.
+     * @param present the presence mask column.
+     * @param sauces the sauce mask column.
+     * @param leafyGreens the leafy greens mask column.
+     * @param prices the price column.
+     * @param from the first position to scan.
+     * @param to the position after the last one to scan.
+     * @param hits receives the positions of the matching items; must hold at least {@code to - from}.
+     * @return the number of matching items.
+     */
+    int scan(PackedQuery query, int[] attributes, int[] present, long[] sauces, long[] leafyGreens, double[] prices,
+             int from, int to, int[] hits);
+
+    /**
+     * Gets the fastest engine available to this JVM, unless {@code -Dmenu.scanEngine=scalar} asks for
+     * the scalar one.
+     *
+     * @return the scan engine.
+     */
+    static ScanEngine fromSystemProperty() {
+        if ("scalar".equalsIgnoreCase(System.getProperty("menu.scanEngine", "vector").strip())) return new ScalarScanEngine();
+        ScanEngine vector = vector();
+        return vector != null ? vector : new ScalarScanEngine();
+    }
+
+    /**
+     * Loads the vector engine.
+     *
+     * @return the vector engine, or null if it isn't built or the incubator module isn't enabled.
+     */
+    static ScanEngine vector() {
+        if (ModuleLayer.boot().findModule(VECTOR_MODULE).isEmpty()) return null;
+        try {
+            return (ScanEngine) Class.forName(VECTOR_ENGINE_CLASS).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+}
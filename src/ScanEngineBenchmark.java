@@ -0,0 +1,152 @@
+import java.io.UncheckedIOException;
+import java.util.*;
+
+/**
+ * Compares the scan engines on the packed columns of a menu, without the GUI: every search is run
+ * through the scalar engine and the vector engine, the two must find exactly the same items, and
+ * the time each takes per scan is reported. The menu is repeated until the columns are large enough
+ * for the timings to mean something. Searches are made up from the menu's own items (a random
+ * selection of each item's filters and a random price range), so they find some items but not all.
+ * Exits with status 1 if the engines disagree and 2 if the vector engine isn't available.
+ */
+public class ScanEngineBenchmark {
+    private static final int SEARCHES = 200;
+    private static final int MIN_ITEMS = 1 << 20;
+    private static final int WARM_UP_PASSES = 5;
+
+    /**
+     * Runs from the command line: {@code --scan-benchmark [--menu=path] [--runs=N]}. The vector
+     * engine needs {@code --add-modules jdk.incubator.vector} at runtime and {@code src-vector} built.
+     *
+     * @param args the command-line arguments, after "--scan-benchmark".
+     * @param defaultMenu the menu file to use when none is given.
+     */
+    public static void main(String[] args, String defaultMenu) {
+        String menuPath = defaultMenu;
+        int runs = 10;
+        for (String arg : args) {
+            if (arg.startsWith("--menu=")) menuPath = arg.substring("--menu=".length());
+            else if (arg.startsWith("--runs=")) runs = Integer.parseInt(arg.substring("--runs=".length()));
+        }
+        ScanEngine vector = ScanEngine.vector();
+        if (vector == null) {
+            System.out.println("The vector engine isn't available; build src-vector and run with --add-modules " + ScanEngine.VECTOR_MODULE);
+            System.exit(2);
+            return;
+        }
+        MenuColumns menu;
+        try {
+            menu = MenuSearcher.loadMenuColumns(menuPath);
+        } catch (UncheckedIOException | IllegalArgumentException e) {
+            System.out.println("Menu could not be loaded. \nError message: " + e.getMessage());
+            System.exit(2);
+            return;
+        }
+        if (menu.size() == 0) {
+            System.out.println("The menu is empty, so there is nothing to compare");
+            System.exit(2);
+            return;
+        }
+        Columns columns = new Columns(menu, Math.max(1, MIN_ITEMS / menu.size()));
+        List<PackedQuery> searches = searches(menu, new Random(42));
+        ScanEngine scalar = new ScalarScanEngine();
+
+        int[] scalarHits = new int[columns.size];
+        int[] vectorHits = new int[columns.size];
+        long matches = 0;
+        for (PackedQuery search : searches) {
+            int count = columns.scan(scalar, search, scalarHits);
+            if (count != columns.scan(vector, search, vectorHits) || !Arrays.equals(scalarHits, 0, count, vectorHits, 0, count)) {
+                System.out.println("FAILED: the engines found different items for a search");
+                System.exit(1);
+            }
+            matches += count;
+        }
+        System.out.printf("%d searches x %d items: %d matches, the same from both engines%n", searches.size(), columns.size, matches);
+
+        // Compiled before they are timed, as they would be in a running kiosk
+        for (int pass = 0; pass < WARM_UP_PASSES; pass++) {
+            time(scalar, columns, searches, scalarHits);
+            time(vector, columns, searches, vectorHits);
+        }
+        long scalarTime = 0;
+        long vectorTime = 0;
+        for (int run = 0; run < runs; run++) {
+            scalarTime += time(scalar, columns, searches, scalarHits);
+            vectorTime += time(vector, columns, searches, vectorHits);
+        }
+        double scans = (double) runs * searches.size();
+        System.out.printf("%-8s %8.3f ms/scan%n", "scalar", scalarTime / 1e6 / scans);
+        System.out.printf("%-8s %8.3f ms/scan  %5.1fx%n", "vector", vectorTime / 1e6 / scans, (double) scalarTime / vectorTime);
+    }
+
+    /**
+     * Makes up searches from the menu's items, each keeping a random selection of one item's filters
+     * and a random price range around its price.
+     *
+     * @param menu the menu.
+     * @param random the source of randomness.
+     * @return the compiled searches.
+     */
+    private static List<PackedQuery> searches(MenuColumns menu, Random random) {
+        List<PackedQuery> searches = new ArrayList<>(SEARCHES);
+        for (int i = 0; i < SEARCHES; i++) {
+            MenuItem menuItem = menu.getItem(random.nextInt(menu.size()));
+            Map<Filter, Object> filterMap = new LinkedHashMap<>();
+            for (Map.Entry<Filter, Object> filter : menuItem.getDreamMenuItem().getAllFilters().entrySet()) {
+                if (random.nextBoolean()) filterMap.put(filter.getKey(), filter.getValue());
+            }
+            double price = menuItem.getPrice();
+            DreamMenuItem search = new DreamMenuItem(filterMap, price - random.nextInt(10), price + random.nextInt(10));
+            searches.add(new PackedQuery(search, menu.getDictionary()));
+        }
+        return searches;
+    }
+
+    private static long time(ScanEngine engine, Columns columns, List<PackedQuery> searches, int[] hits) {
+        long start = System.nanoTime();
+        for (PackedQuery search : searches) columns.scan(engine, search, hits);
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * The packed columns of a menu, repeated a number of times over.
+     */
+    private static final class Columns {
+        private final int size;
+        private final int[] attributes;
+        private final int[] present;
+        private final long[] sauces;
+        private final long[] leafyGreens;
+        private final double[] prices;
+
+        private Columns(MenuColumns menu, int copies) {
+            size = menu.size() * copies;
+            attributes = new int[size];
+            present = new int[size];
+            sauces = new long[size];
+            leafyGreens = new long[size];
+            prices = new double[size];
+            for (int i = 0; i < menu.size(); i++) {
+                MenuItem menuItem = menu.getItem(i);
+                DreamMenuItem dreamMenuItem = menuItem.getDreamMenuItem();
+                int packed = PackedAttributes.pack(dreamMenuItem, menu.getDictionary());
+                int presence = PackedAttributes.presence(dreamMenuItem);
+                long sauceMask = PackedAttributes.sauceMask(dreamMenuItem.getFilter(Filter.SAUCE_S));
+                long leafyGreensMask = PackedAttributes.leafyGreensMask(dreamMenuItem, menu.getDictionary());
+                for (int copy = 0; copy < copies; copy++) {
+                    int j = copy * menu.size() + i;
+                    attributes[j] = packed;
+                    present[j] = presence;
+                    sauces[j] = sauceMask;
+                    leafyGreens[j] = leafyGreensMask;
+                    prices[j] = menuItem.getPrice();
+                }
+            }
+        }
+
+        private int scan(ScanEngine engine, PackedQuery query, int[] hits) {
+            return engine.scan(query, attributes, present, sauces, leafyGreens, prices, 0, size, hits);
+        }
+    }
+}
@@ -4,6 +4,8 @@ import javax.swing.event.DocumentListener;
 import java.awt.*;
 import java.awt.event.*;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -31,6 +33,8 @@ public class SearchInterface {
     private static final int PREVIEW_HEIGHT = 120;
     private final JFrame frame;
     private final GridBagConstraints gbc;
+    private final CompletableFuture<Menu> menu;
+    private final ImageCache imageCache;
     private String bunType;
     private Set<String> sauceTypes;
     private Set<String> leafyGreensTypes;
@@ -51,6 +55,32 @@ public class SearchInterface {
      * @param menu The menu object containing the list of available ingredients.
      */
     public SearchInterface(Menu menu) {
+        this(CompletableFuture.completedFuture(menu));
+    }
+
+    /**
+     * Constructor for a SearchGUI that can be shown while the menu is still loading.
+     * Only the parts of the GUI common to every order type are built here, with the preview images
+     * decoded in the background; the type combo box is enabled once the menu has loaded (a menu that
+     * fails to load is reported and the program exits), and the burger and salad panels (which list
+     * the menu's ingredients) are built when first selected.
+     *
+     * @param menu The menu being loaded.
+     */
+    public SearchInterface(CompletableFuture<Menu> menu) {
+        this(menu, new ImageCache(0));
+    }
+
+    /**
+     * Constructor for a SearchGUI whose images come from a cache shared with other windows.
+     *
+     * @param menu The menu being loaded.
+     * @param imageCache The cache of scaled images.
+     */
+    public SearchInterface(CompletableFuture<Menu> menu, ImageCache imageCache) {
+        this.menu = menu;
+        this.imageCache = imageCache;
+
         // Initialize the main frame of the GUI
         frame = InterfaceUtilities.createFrame();
 
@@ -70,16 +100,9 @@ public class SearchInterface {
         JPanel defaultPanel = prepareTypePanel(true, controlPanel);
         prepareDefaultTypeSection(defaultPanel);
 
-        // Create and setup burger-specific panel and its components
+        // Create the (still empty) burger-specific and salad-specific panels
         JPanel burgerPanel = prepareTypePanel(false, controlPanel);
-        prepareBunComboBox(burgerPanel, menu.getAllIngredientTypes(Filter.BUN));
-        prepareSauceList(burgerPanel);
-
-        // Create and setup salad-specific panel and its components
         JPanel saladPanel = prepareTypePanel(false, controlPanel);
-        prepareDressingComboBox(saladPanel);
-        prepareCucumberRadioButtons(saladPanel);
-        prepareLeafyGreensList(saladPanel, menu.getAllIngredientTypes(Filter.LEAFY_GREENS));
 
         // Add a combo box for the user to select the type of order
         prepareTypeComboBox(controlPanel, defaultPanel, burgerPanel, saladPanel);
@@ -141,6 +164,29 @@ public class SearchInterface {
         return panel;
     }
 
+    /**
+     * Builds the burger-specific components in the burger panel, unless they are already built.
+     *
+     * @param burgerPanel The burger panel.
+     */
+    private void prepareBurgerSection(JPanel burgerPanel) {
+        if (burgerPanel.getComponentCount() > 0) return;
+        prepareBunComboBox(burgerPanel, menu.join().getAllIngredientTypes(Filter.BUN));
+        prepareSauceList(burgerPanel);
+    }
+
+    /**
+     * Builds the salad-specific components in the salad panel, unless they are already built.
+     *
+     * @param saladPanel The salad panel.
+     */
+    private void prepareSaladSection(JPanel saladPanel) {
+        if (saladPanel.getComponentCount() > 0) return;
+        prepareDressingComboBox(saladPanel);
+        prepareCucumberRadioButtons(saladPanel);
+        prepareLeafyGreensList(saladPanel, menu.join().getAllIngredientTypes(Filter.LEAFY_GREENS));
+    }
+
     /**
      * Creates and sets up the bun combo box in the specified parent panel.
      *
@@ -339,17 +385,26 @@ public class SearchInterface {
         comboBox.setModel(new DefaultComboBoxModel<>(Stream.concat(Stream.of("Select Type"), Arrays.stream(typeOptions)).toArray(String[]::new)));
         orderType = "Select Type";
 
+        // The type panels list the menu's ingredients, so no type can be chosen until it has loaded
+        comboBox.setEnabled(false);
+        menu.whenComplete((loaded, failure) -> SwingUtilities.invokeLater(() -> {
+            if (failure == null) comboBox.setEnabled(true);
+            else showLoadFailure(failure);
+        }));
+
         // Add an item listener to change panel visibility based on the selected item
         comboBox.addItemListener(arg0 -> {
             if (arg0.getStateChange() == ItemEvent.SELECTED) {
                 String selectedType = comboBox.getSelectedItem().toString();
                 switch (selectedType) {
                     case "Burger":
+                        prepareBurgerSection(burgerPanel);
                         defaultPanel.setVisible(false);
                         saladPanel.setVisible(false);
                         burgerPanel.setVisible(true);
                         break;
                     case "Salad":
+                        prepareSaladSection(saladPanel);
                         burgerPanel.setVisible(false);
                         defaultPanel.setVisible(false);
                         saladPanel.setVisible(true);
@@ -361,10 +416,23 @@ public class SearchInterface {
                         break;
                 }
                 orderType = selectedType;
+                parent.revalidate();
             }
         });
     }
 
+    /**
+     * Tells the customer the menu could not be loaded and exits, since no order can be made without it.
+     *
+     * @param failure why the menu's loading failed.
+     */
+    private void showLoadFailure(Throwable failure) {
+        Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+        System.out.println("Menu could not be loaded. \nError message: " + cause.getMessage());
+        JOptionPane.showMessageDialog(frame, "Menu could not be loaded. \nError message: " + cause.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+        System.exit(1);
+    }
+
     /**
      * Creates and sets up the company logo in the specified parent panel.
      *
@@ -372,7 +440,7 @@ public class SearchInterface {
      */
     private void prepareCompanyLogo(JPanel parent) {
         // Create and scale the logo image.
-        Image image = InterfaceUtilities.createImage(LOGO_PATH, LOGO_WIDTH, LOGO_HEIGHT);
+        Image image = imageCache.getImage(LOGO_PATH, LOGO_WIDTH, LOGO_HEIGHT);
         JLabel label = InterfaceUtilities.createLabel();
         label.setIcon(new ImageIcon(image));
 
@@ -584,7 +652,7 @@ public class SearchInterface {
                 return;
             }
 
-            if (sauceTypes.isEmpty() && "Burger".equals(orderType)) {
+            if ("Burger".equals(orderType) && sauceTypes.isEmpty()) {
                 JOptionPane.showMessageDialog(null, "Sauce List Is Empty", "Error", JOptionPane.ERROR_MESSAGE);
                 return;
             }
@@ -606,7 +674,7 @@ public class SearchInterface {
                 return;
             }
 
-            if (leafyGreensTypes.isEmpty() && "Salad".equals(orderType)) {
+            if ("Salad".equals(orderType) && leafyGreensTypes.isEmpty()) {
                 JOptionPane.showMessageDialog(null, "Leafy Greens List Is Empty", "Error", JOptionPane.ERROR_MESSAGE);
                 return;
             }
@@ -640,13 +708,20 @@ public class SearchInterface {
      * @param parent the JPanel to which the default type section will be added.
      */
     private void prepareDefaultTypeSection(JPanel parent) {
-        // Loop through the preview paths to create image icons and add them to the panel
+        // Loop through the preview paths to create image labels and add them to the panel
         for (int x = 0; x < 4; x++) {
-            Image image = InterfaceUtilities.createImage(PREVIEW_PATHS[x], PREVIEW_WIDTH, PREVIEW_HEIGHT);
             JLabel label = InterfaceUtilities.createLabel();
-            label.setIcon(new ImageIcon(image));
+            InterfaceUtilities.setPreferredSize(label, PREVIEW_WIDTH, PREVIEW_HEIGHT);
             InterfaceUtilities.setGridBagConstraints(x+1, 1, 1, 1, gbc);
             parent.add(label, gbc);
+
+            // Decode the images in parallel in the background and show each one as soon as it is ready
+            String path = PREVIEW_PATHS[x];
+            // (the ImageIcon is made there too, since that is when the scaled image is actually drawn)
+            CompletableFuture.supplyAsync(() -> {
+                Image image = imageCache.getImage(path, PREVIEW_WIDTH, PREVIEW_HEIGHT);
+                return image == null ? null : new ImageIcon(image);
+            }).thenAccept(icon -> SwingUtilities.invokeLater(() -> label.setIcon(icon)));
         }
     }
 
@@ -763,4 +838,4 @@ public class SearchInterface {
     public JFrame getFrame() {
         return frame;
     }
-}
\ No newline at end of file
+}
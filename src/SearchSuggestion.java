@@ -0,0 +1,90 @@
+import java.util.*;
+
+/**
+ * A way to relax a search that found nothing: the filters to drop and/or the wider price range that
+ * would find items, with the closest of those items.
+ */
+public class SearchSuggestion {
+    private final Set<Filter> droppedFilters;
+    private final boolean priceWidened;
+    private final DreamMenuItem relaxedSearch;
+    private final int matchCount;
+    private final List<MenuItem> alternatives;
+
+    /**
+     * Creates a suggestion.
+     *
+     * @param droppedFilters the filters to drop.
+     * @param priceWidened whether the price range is widened.
+     * @param relaxedSearch the search with the filters dropped and the price range widened.
+     * @param matchCount the number of items held back by exactly these constraints.
+     * @param alternatives the closest of those items.
+     */
+    SearchSuggestion(Set<Filter> droppedFilters, boolean priceWidened, DreamMenuItem relaxedSearch, int matchCount,
+                     List<MenuItem> alternatives) {
+        this.droppedFilters = droppedFilters;
+        this.priceWidened = priceWidened;
+        this.relaxedSearch = relaxedSearch;
+        this.matchCount = matchCount;
+        this.alternatives = alternatives;
+    }
+
+    /**
+     * Gets the filters the suggestion drops.
+     *
+     * @return the dropped filters, possibly none.
+     */
+    public Set<Filter> getDroppedFilters() {
+        return Collections.unmodifiableSet(droppedFilters);
+    }
+
+    /**
+     * Gets whether the suggestion widens the price range.
+     *
+     * @return true if the price range is widened.
+     */
+    public boolean isPriceWidened() {
+        return priceWidened;
+    }
+
+    /**
+     * Gets the relaxed search, which can be passed to {@link Menu#findMatch(DreamMenuItem)}.
+     *
+     * @return the relaxed search criteria.
+     */
+    public DreamMenuItem getRelaxedSearch() {
+        return relaxedSearch;
+    }
+
+    /**
+     * Gets the number of items held back by exactly the dropped filters and (if widened) the price
+     * range. When the price range is widened, the relaxed search covers only the nearest of them.
+     *
+     * @return the number of items.
+     */
+    public int getMatchCount() {
+        return matchCount;
+    }
+
+    /**
+     * Gets the closest of the items the relaxed search finds: the cheapest ones, or when only the
+     * price range is widened, the ones priced nearest the original range.
+     *
+     * @return the alternative items.
+     */
+    public List<MenuItem> getAlternatives() {
+        return Collections.unmodifiableList(alternatives);
+    }
+
+    @Override
+    public String toString() {
+        StringJoiner changes = new StringJoiner(" and ");
+        if (!droppedFilters.isEmpty()) {
+            StringJoiner filters = new StringJoiner(", ");
+            for (Filter filter : droppedFilters) filters.add(filter.toString());
+            changes.add("without " + filters);
+        }
+        if (priceWidened) changes.add(String.format("at other prices (nearest: $%.2f to $%.2f)", relaxedSearch.getMinPrice(), relaxedSearch.getMaxPrice()));
+        return matchCount + (matchCount == 1 ? " item " : " items ") + changes;
+    }
+}
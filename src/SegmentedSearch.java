@@ -0,0 +1,48 @@
+import java.util.*;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BiFunction;
+
+/**
+ * Searches a range of menu positions on a fork/join pool. The range is split in halves down to
+ * fixed-size segments, which idle workers steal from each other, and the results of the two halves are
+ * concatenated left then right, so the matches come back in menu order whatever thread found them.
+ */
+public class SegmentedSearch extends RecursiveTask<List<MenuItem>> {
+    private static final long serialVersionUID = 1L;
+    private final BiFunction<Integer, Integer, List<MenuItem>> segmentSearch;
+    private final int segmentSize;
+    private final int from;
+    private final int to;
+
+    /**
+     * Creates a search over a range of positions.
+     *
+     * @param segmentSearch searches the positions from its first argument up to (not including) its second.
+     * @param segmentSize the largest range searched without splitting further.
+     * @param from the first position.
+     * @param to the position after the last.
+     */
+    public SegmentedSearch(BiFunction<Integer, Integer, List<MenuItem>> segmentSearch, int segmentSize, int from, int to) {
+        this.segmentSearch = segmentSearch;
+        this.segmentSize = segmentSize;
+        this.from = from;
+        this.to = to;
+    }
+
+    @Override
+    protected List<MenuItem> compute() {
+        if (to - from <= segmentSize) return segmentSearch.apply(from, to);
+        // Split on a segment boundary so the segments are the same whichever way the range is split
+        int middle = from + (to - from) / segmentSize / 2 * segmentSize;
+        if (middle == from) middle += segmentSize;
+        SegmentedSearch left = new SegmentedSearch(segmentSearch, segmentSize, from, middle);
+        SegmentedSearch right = new SegmentedSearch(segmentSearch, segmentSize, middle, to);
+        left.fork();
+        List<MenuItem> rightMatching = right.compute();
+        List<MenuItem> leftMatching = left.join();
+        List<MenuItem> matching = new ArrayList<>(leftMatching.size() + rightMatching.size());
+        matching.addAll(leftMatching);
+        matching.addAll(rightMatching);
+        return matching;
+    }
+}
@@ -0,0 +1,185 @@
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+
+/**
+ * Records what customers do at the kiosk, so sessions can be replayed later without the GUI (see
+ * {@link SessionReplayer}). Each event is appended to the log as one tab-separated line:
+ * <pre>
+ * time  session  S  query  matches   a search (see {@link QueryFormat}) and the number of matches
+ * time  session  A  query  matches   an alternative the customer picked after a search found nothing
+ * time  session  P  id               a menu item picked from the results
+ * time  session  O  id  contact  name  requests   an order placed
+ * </pre>
+ * Times are milliseconds since the epoch. Every line is flushed as it is written, so a crash loses at
+ * most the event being recorded.
+ */
+public class SessionRecorder implements Closeable {
+    static final char SEARCH = 'S';
+    static final char ALTERNATIVE = 'A';
+    static final char PICK = 'P';
+    static final char ORDER = 'O';
+    private final BufferedWriter writer;
+    private final Clock clock;
+    private long lastSession;
+    private boolean failed;
+
+    /**
+     * Opens a log for appending, using the system clock.
+     *
+     * @param logFile the log file, created if it doesn't exist.
+     * @throws UncheckedIOException if the log can't be opened.
+     */
+    public SessionRecorder(Path logFile) {
+        this(logFile, Clock.systemUTC());
+    }
+
+    /**
+     * Opens a log for appending.
+     *
+     * @param logFile the log file, created if it doesn't exist.
+     * @param clock the clock to time events with.
+     * @throws UncheckedIOException if the log can't be opened.
+     */
+    public SessionRecorder(Path logFile, Clock clock) {
+        this.clock = clock;
+        try {
+            writer = Files.newBufferedWriter(logFile, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException io) {
+            throw new UncheckedIOException(io);
+        }
+    }
+
+    /**
+     * Starts a new session. Sessions are numbered from the time they start, so sessions recorded by
+     * different runs into the same log don't share numbers.
+     *
+     * @return the session number.
+     */
+    public synchronized long startSession() {
+        lastSession = Math.max(lastSession + 1, clock.millis());
+        return lastSession;
+    }
+
+    /**
+     * Records a search.
+     *
+     * @param session the session number.
+     * @param dreamMenuItem the search criteria.
+     * @param matches the number of items found.
+     */
+    public void recordSearch(long session, DreamMenuItem dreamMenuItem, int matches) {
+        write(session, SEARCH, QueryFormat.format(dreamMenuItem) + '\t' + matches);
+    }
+
+    /**
+     * Records the search a customer picked from the alternatives offered when a search found nothing.
+     *
+     * @param session the session number.
+     * @param relaxedSearch the search picked.
+     * @param matches the number of items found.
+     */
+    public void recordAlternative(long session, DreamMenuItem relaxedSearch, int matches) {
+        write(session, ALTERNATIVE, QueryFormat.format(relaxedSearch) + '\t' + matches);
+    }
+
+    /**
+     * Records a menu item being picked from the results.
+     *
+     * @param session the session number.
+     * @param menuItem the item picked.
+     */
+    public void recordPick(long session, MenuItem menuItem) {
+        write(session, PICK, Long.toString(menuItem.getMenuItemIdentifier()));
+    }
+
+    /**
+     * Records an order.
+     *
+     * @param session the session number.
+     * @param geek the customer.
+     * @param menuItem the item ordered.
+     * @param specialRequests the customer's special requests.
+     */
+    public void recordOrder(long session, Geek geek, MenuItem menuItem, String specialRequests) {
+        write(session, ORDER, menuItem.getMenuItemIdentifier() + "\t" + geek.getOrderNumber() + '\t'
+                + escape(geek.getName()) + '\t' + escape(specialRequests));
+    }
+
+    /**
+     * Appends an event to the log. Recording must never get in the way of an order, so if the log
+     * can't be written the error is reported once and recording stops.
+     *
+     * @param session the session number.
+     * @param kind the kind of event.
+     * @param details the rest of the line.
+     */
+    private synchronized void write(long session, char kind, String details) {
+        if (failed) return;
+        try {
+            writer.write(clock.millis() + "\t" + session + '\t' + kind + '\t' + details + '\n');
+            writer.flush();
+        } catch (IOException io) {
+            failed = true;
+            System.err.println("Session recording stopped. \nError message: " + io.getMessage());
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+
+    /**
+     * Escapes backslashes, tabs and line breaks so free text stays within its field.
+     *
+     * @param text the text.
+     * @return the escaped text.
+     */
+    static String escape(String text) {
+        if (text == null) return "";
+        StringBuilder escaped = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '\\' -> escaped.append("\\\\");
+                case '\t' -> escaped.append("\\t");
+                case '\n' -> escaped.append("\\n");
+                case '\r' -> escaped.append("\\r");
+                default -> escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+
+    /**
+     * Reverses {@link #escape(String)}.
+     *
+     * @param text the escaped text.
+     * @return the original text.
+     */
+    static String unescape(String text) {
+        if (text.indexOf('\\') < 0) return text;
+        StringBuilder unescaped = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c != '\\' || i + 1 == text.length()) {
+                unescaped.append(c);
+                continue;
+            }
+            switch (text.charAt(++i)) {
+                case 't' -> unescaped.append('\t');
+                case 'n' -> unescaped.append('\n');
+                case 'r' -> unescaped.append('\r');
+                default -> unescaped.append(text.charAt(i));
+            }
+        }
+        return unescaped.toString();
+    }
+}
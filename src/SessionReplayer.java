@@ -0,0 +1,270 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replays sessions recorded by a {@link SessionRecorder} without the GUI, to reproduce the load of a
+ * busy period. Each session's events are replayed in order, on a pool of threads standing in for the
+ * kiosks, at their recorded times scaled by a speed-up factor: searches run against the menu and
+ * orders go through the order store, order analytics and popularity ranking. A search that found
+ * nothing when recorded also looks for the alternatives the kiosk offered, and each search's number of
+ * matches is checked against the recorded one. The latency of every operation is collected in a
+ * {@link ReplayReport}.
+ */
+public class SessionReplayer {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private final Menu menu;
+    private final OrderStore orderStore;
+    private final OrderAnalytics orderAnalytics = new OrderAnalytics();
+    private final PopularityRanker popularityRanker = new PopularityRanker();
+    private final Map<Long, MenuItem> itemsById = new HashMap<>();
+
+    /**
+     * Creates a replayer.
+     *
+     * @param menu the menu to search and order from.
+     * @param orderStore the store to place orders in, or null to leave the store out of the order path.
+     */
+    public SessionReplayer(Menu menu, OrderStore orderStore) {
+        this.menu = menu;
+        this.orderStore = orderStore;
+        for (MenuItem menuItem : menu.getSnapshot()) itemsById.put(menuItem.getMenuItemIdentifier(), menuItem);
+    }
+
+    /**
+     * Runs from the command line:
+     * {@code --replay log [--menu=path] [--speed=N|max] [--threads=N] [--orders=directory]}.
+     * By default sessions are replayed in real time on one thread per available processor, and orders
+     * are placed in a temporary order store that is deleted afterwards. Exits with status 1 if the
+     * arguments are wrong or the menu, log or order store can't be used.
+     *
+     * @param args the command-line arguments, after "--replay".
+     * @param defaultMenu the menu file to use when none is given.
+     */
+    public static void main(String[] args, String defaultMenu) {
+        String menuPath = defaultMenu;
+        String logPath = null;
+        String ordersPath = null;
+        double speed = 1;
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (String arg : args) {
+            if (arg.startsWith("--menu=")) menuPath = arg.substring("--menu=".length());
+            else if (arg.startsWith("--orders=")) ordersPath = arg.substring("--orders=".length());
+            else if (arg.startsWith("--threads=")) threads = Integer.parseInt(arg.substring("--threads=".length()));
+            else if (arg.equals("--speed=max")) speed = Double.POSITIVE_INFINITY;
+            else if (arg.startsWith("--speed=")) speed = Double.parseDouble(arg.substring("--speed=".length()));
+            else logPath = arg;
+        }
+        if (logPath == null) {
+            System.out.println("Usage: --replay log [--menu=path] [--speed=N|max] [--threads=N] [--orders=directory]");
+            System.exit(1);
+            return;
+        }
+        Menu menu;
+        try {
+            menu = MenuSearcher.loadMenu(menuPath);
+        } catch (UncheckedIOException | IllegalArgumentException e) {
+            System.out.println("Menu could not be loaded. \nError message: " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+        Path ordersDirectory = null;
+        boolean failed = false;
+        try {
+            ordersDirectory = ordersPath == null ? Files.createTempDirectory("replay-orders") : Path.of(ordersPath);
+            ReplayReport report;
+            try (Reader log = Files.newBufferedReader(Path.of(logPath), StandardCharsets.UTF_8);
+                 OrderStore orderStore = new OrderStore(ordersDirectory)) {
+                report = new SessionReplayer(menu, orderStore).replay(log, speed, threads);
+            }
+            System.out.println(report);
+        } catch (IOException | UncheckedIOException | IllegalArgumentException e) {
+            System.out.println("Replay failed. \nError message: " + e.getMessage());
+            failed = true;
+        } finally {
+            if (ordersPath == null && ordersDirectory != null) deleteDirectory(ordersDirectory);
+        }
+        // Only once the temporary order store is deleted, which exiting from the catch would skip
+        if (failed) System.exit(1);
+    }
+
+    /**
+     * Replays every session in a log.
+     *
+     * @param log the recorded log.
+     * @param speed how many times faster than recorded to replay; infinite to replay as fast as possible.
+     * @param threads the number of sessions that can be replayed at once.
+     * @return the latencies measured.
+     * @throws IOException if the log can't be read.
+     */
+    public ReplayReport replay(Reader log, double speed, int threads) throws IOException {
+        if (!(speed > 0)) throw new IllegalArgumentException("Speed must be positive");
+        if (threads < 1) throw new IllegalArgumentException("Need at least one thread");
+        List<List<Event>> sessions = readLog(log);
+        ReplayReport report = new ReplayReport();
+        long origin = Long.MAX_VALUE;
+        for (List<Event> session : sessions) origin = Math.min(origin, session.get(0).time);
+        ExecutorService kiosks = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        try {
+            List<Future<?>> replays = new ArrayList<>();
+            for (List<Event> session : sessions) {
+                long sessionOrigin = origin;
+                replays.add(kiosks.submit(() -> replaySession(session, sessionOrigin, start, speed, report)));
+            }
+            for (Future<?> replay : replays) replay.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Replay failed", e.getCause());
+        } finally {
+            kiosks.shutdownNow();
+        }
+        report.finish(System.nanoTime() - start);
+        return report;
+    }
+
+    /**
+     * Replays one session's events in order, each at its scaled time.
+     *
+     * @param session the session's events.
+     * @param origin the recorded time of the first event of the log.
+     * @param start the time the replay started, from System.nanoTime().
+     * @param speed the speed-up factor.
+     * @param report receives the latencies.
+     */
+    private void replaySession(List<Event> session, long origin, long start, double speed, ReplayReport report) {
+        for (Event event : session) {
+            long due = start + (long) ((event.time - origin) * 1e6 / speed);
+            for (long wait = due - System.nanoTime(); wait > 0; wait = due - System.nanoTime()) LockSupport.parkNanos(wait);
+            long began = System.nanoTime();
+            report.record("lag", began - due);
+            switch (event.kind) {
+                case SessionRecorder.SEARCH, SessionRecorder.ALTERNATIVE -> {
+                    int matches = menu.findMatch(event.query).size();
+                    report.record("search", System.nanoTime() - began);
+                    if (matches != event.matches) report.mismatch();
+                    // The kiosk then offered the nearest alternatives, which is a search of its own
+                    if (event.kind == SessionRecorder.SEARCH && event.matches == 0) {
+                        long suggesting = System.nanoTime();
+                        menu.suggestAlternatives(event.query, KioskSession.SUGGESTED_ALTERNATIVES);
+                        report.record("suggest", System.nanoTime() - suggesting);
+                    }
+                }
+                case SessionRecorder.ORDER -> {
+                    MenuItem menuItem = itemsById.get(event.menuItemIdentifier);
+                    if (menuItem == null) {
+                        report.skip();
+                        continue;
+                    }
+                    placeOrder(new Geek(event.customerName, event.contactNumber), menuItem, event.specialRequests);
+                    report.record("order", System.nanoTime() - began);
+                }
+                // Picking an item from the results does no work of its own; it only paces the session
+                default -> { }
+            }
+        }
+    }
+
+    /**
+     * Places an order the way the kiosk does, apart from writing the customer's order file.
+     *
+     * @param geek the customer.
+     * @param menuItem the item ordered.
+     * @param specialRequests the customer's special requests.
+     */
+    private void placeOrder(Geek geek, MenuItem menuItem, String specialRequests) {
+        if (orderStore != null) orderStore.addOrder(geek, menuItem, specialRequests);
+        orderAnalytics.recordOrder(menuItem, specialRequests);
+        if (menuItem.getMenuItemIdentifier() != 0) popularityRanker.recordOrder(menuItem.getMenuItemIdentifier());
+    }
+
+    /**
+     * Reads a log into sessions. A line that can't be parsed is reported on standard error and skipped.
+     *
+     * @param log the recorded log.
+     * @return each session's events in recorded order, sessions in order of their first event.
+     * @throws IOException if the log can't be read.
+     */
+    private static List<List<Event>> readLog(Reader log) throws IOException {
+        Map<Long, List<Event>> sessions = new LinkedHashMap<>();
+        BufferedReader reader = new BufferedReader(log, BUFFER_SIZE);
+        int lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) continue;
+            try {
+                Event event = new Event(line.split("\t", -1));
+                sessions.computeIfAbsent(event.session, s -> new ArrayList<>()).add(event);
+            } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+                System.err.println("Skipped event on line " + lineNumber + ": " + e.getMessage());
+            }
+        }
+        List<List<Event>> ordered = new ArrayList<>(sessions.values());
+        ordered.sort(Comparator.comparingLong(session -> session.get(0).time));
+        return ordered;
+    }
+
+    /**
+     * Deletes a directory and the files in it, as far as possible.
+     *
+     * @param directory the directory.
+     */
+    private static void deleteDirectory(Path directory) {
+        try (var files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) Files.deleteIfExists(file);
+            Files.deleteIfExists(directory);
+        } catch (IOException io) {
+            System.out.println("Could not delete " + directory + ". \nError message: " + io.getMessage());
+        }
+    }
+
+    /**
+     * One recorded event, parsed ahead of the replay so that only the work itself is timed.
+     */
+    private static final class Event {
+        private final long time;
+        private final long session;
+        private final char kind;
+        private DreamMenuItem query;
+        private int matches;
+        private long menuItemIdentifier;
+        private long contactNumber;
+        private String customerName;
+        private String specialRequests;
+
+        /**
+         * Parses an event from the fields of a log line.
+         *
+         * @param fields the tab-separated fields.
+         * @throws IllegalArgumentException if a field can't be parsed or the kind is unknown.
+         */
+        private Event(String[] fields) {
+            time = Long.parseLong(fields[0]);
+            session = Long.parseLong(fields[1]);
+            kind = fields[2].length() == 1 ? fields[2].charAt(0) : '?';
+            switch (kind) {
+                case SessionRecorder.SEARCH, SessionRecorder.ALTERNATIVE -> {
+                    query = QueryFormat.parse(fields[3]);
+                    matches = Integer.parseInt(fields[4]);
+                }
+                case SessionRecorder.PICK -> menuItemIdentifier = Long.parseLong(fields[3]);
+                case SessionRecorder.ORDER -> {
+                    menuItemIdentifier = Long.parseLong(fields[3]);
+                    contactNumber = Long.parseLong(fields[4]);
+                    customerName = SessionRecorder.unescape(fields[5]);
+                    specialRequests = SessionRecorder.unescape(fields[6]);
+                }
+                default -> throw new IllegalArgumentException("Unknown event: " + fields[2]);
+            }
+        }
+    }
+}
@@ -0,0 +1,400 @@
+import java.util.*;
+
+/**
+ * An inverted index of the words in the names and descriptions of the items of a menu. Items are
+ * numbered in the order they were indexed (the menu's order, cheapest first) and each number is mapped
+ * back to the item's identifier, so the index doesn't go out of date when prices change: the menu
+ * looks the identifiers up among its current items. Every posting list is stored as the gaps between
+ * item numbers, each written as a variable-length integer in one shared byte array. The words are kept sorted, so all the words starting with a prefix are found
+ * by binary search. Long posting lists also record where every 64th item starts, so intersecting a
+ * long list with a short one skips the parts of the long list that can't match.
+ *
+ * <p>A query is a list of words, all of which an item must contain; a word ending in {@code *} stands
+ * for every word starting with it, e.g. {@code spic*} matches "spicy" and "spice". Words are compared
+ * in lower case, and anything other than letters and digits separates them.</p>
+ */
+public class TextIndex {
+    private static final char PREFIX = '*';
+    private static final int SKIP_INTERVAL = 64;
+    private final long[] identifiers;
+    private final String[] terms;
+    private final int[] documentFrequencies;
+    // The postings of terms[i] are postings[postingOffsets[i]] up to postings[postingOffsets[i + 1]]
+    private final int[] postingOffsets;
+    private final byte[] postings;
+    // The skips of terms[i] are skipStarts[i] up to skipStarts[i + 1]: each is the byte offset of a
+    // block of postings and the item just before the block
+    private final int[] skipStarts;
+    private final int[] skipOffsets;
+    private final int[] skipItems;
+
+    /**
+     * Indexes the names and descriptions of the items in a snapshot. Text kept in a description store
+     * is read past the store's cache, so indexing doesn't push out the texts being displayed.
+     *
+     * @param snapshot the snapshot of the menu.
+     */
+    public TextIndex(MenuSnapshot snapshot) {
+        identifiers = new long[snapshot.size()];
+        Map<String, int[]> lists = new HashMap<>();
+        int item = 0;
+        for (MenuItem menuItem : snapshot) {
+            identifiers[item] = menuItem.getMenuItemIdentifier();
+            for (String word : words(menuItem)) {
+                // [count, item, item, ...], grown by doubling
+                int[] list = lists.get(word);
+                if (list == null) list = new int[4];
+                else if (list[0] + 1 == list.length) list = Arrays.copyOf(list, list.length * 2);
+                list[++list[0]] = item;
+                lists.put(word, list);
+            }
+            item++;
+        }
+        terms = lists.keySet().toArray(new String[0]);
+        Arrays.sort(terms);
+        documentFrequencies = new int[terms.length];
+        postingOffsets = new int[terms.length + 1];
+        skipStarts = new int[terms.length + 1];
+        VarIntWriter writer = new VarIntWriter();
+        int[] offsets = new int[64];
+        int[] before = new int[64];
+        int skips = 0;
+        for (int i = 0; i < terms.length; i++) {
+            int[] list = lists.get(terms[i]);
+            documentFrequencies[i] = list[0];
+            postingOffsets[i] = writer.size;
+            skipStarts[i] = skips;
+            int previous = -1;
+            for (int j = 1; j <= list[0]; j++) {
+                if ((j - 1) % SKIP_INTERVAL == 0 && j > 1) {
+                    if (skips == offsets.length) {
+                        offsets = Arrays.copyOf(offsets, skips * 2);
+                        before = Arrays.copyOf(before, skips * 2);
+                    }
+                    offsets[skips] = writer.size;
+                    before[skips++] = previous;
+                }
+                writer.write(list[j] - previous);
+                previous = list[j];
+            }
+        }
+        postingOffsets[terms.length] = writer.size;
+        skipStarts[terms.length] = skips;
+        postings = Arrays.copyOf(writer.bytes, writer.size);
+        skipOffsets = Arrays.copyOf(offsets, skips);
+        skipItems = Arrays.copyOf(before, skips);
+    }
+
+    /**
+     * Splits text into lower-case words of letters and digits.
+     *
+     * @param text the text, or null.
+     * @return the words, in order.
+     */
+    public static List<String> tokenize(String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null) return words;
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) start = i;
+            else if (!wordChar && start >= 0) {
+                words.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Gets the distinct words of an item's name and description.
+     *
+     * @param menuItem the item.
+     * @return the words.
+     */
+    public static Set<String> words(MenuItem menuItem) {
+        String[] text = menuItem.getText();
+        Set<String> words = new HashSet<>(tokenize(text[0]));
+        words.addAll(tokenize(text[1]));
+        return words;
+    }
+
+    /**
+     * Checks whether an item's words satisfy a query, the way {@link #find(String)} would.
+     *
+     * @param words the item's words (see {@link #words(MenuItem)}).
+     * @param query the query.
+     * @return true if the item contains every word of the query.
+     */
+    public static boolean matches(Set<String> words, String query) {
+        for (String term : parse(query)) {
+            if (term.charAt(term.length() - 1) != PREFIX) {
+                if (!words.contains(term)) return false;
+                continue;
+            }
+            String prefix = term.substring(0, term.length() - 1);
+            boolean found = false;
+            for (String word : words) {
+                if (word.startsWith(prefix)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Splits a query into its words, marking those that are prefixes with a trailing {@code *}.
+     *
+     * @param query the query.
+     * @return the words.
+     */
+    private static List<String> parse(String query) {
+        List<String> terms = new ArrayList<>();
+        for (String part : query.split("\\s+")) {
+            boolean prefix = part.endsWith(String.valueOf(PREFIX));
+            List<String> partWords = tokenize(part);
+            for (int i = 0; i < partWords.size(); i++) {
+                // Only the last word of e.g. "half-bak*" is a prefix
+                terms.add(prefix && i == partWords.size() - 1 ? partWords.get(i) + PREFIX : partWords.get(i));
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * Finds the items containing every word of a query.
+     *
+     * @param query the query.
+     * @return the identifiers of the items, in the order they were indexed; every item if the query
+     *         has no words.
+     */
+    public long[] find(String query) {
+        List<int[]> ranges = new ArrayList<>();
+        for (String term : parse(query)) {
+            int[] range = term.charAt(term.length() - 1) == PREFIX ? prefixRange(term.substring(0, term.length() - 1)) : exactRange(term);
+            if (range[0] == range[1]) return new long[0];
+            ranges.add(range);
+        }
+        if (ranges.isEmpty()) return identifiers.clone();
+        // Intersect the rarest words first, so the candidates shrink as fast as possible
+        ranges.sort(Comparator.comparingLong(this::estimate));
+        int[] matching = decode(ranges.get(0));
+        for (int i = 1; i < ranges.size() && matching.length > 0; i++) {
+            matching = ranges.get(i)[1] - ranges.get(i)[0] == 1 ? intersect(matching, ranges.get(i)[0]) : intersect(matching, decode(ranges.get(i)));
+        }
+        long[] found = new long[matching.length];
+        for (int i = 0; i < matching.length; i++) found[i] = identifiers[matching[i]];
+        return found;
+    }
+
+    /**
+     * Gets the number of items indexed.
+     *
+     * @return the number of items.
+     */
+    public int size() {
+        return identifiers.length;
+    }
+
+    /**
+     * Gets the number of distinct words.
+     *
+     * @return the number of words.
+     */
+    public int getTermCount() {
+        return terms.length;
+    }
+
+    /**
+     * Gets the size of the encoded posting lists.
+     *
+     * @return the number of bytes.
+     */
+    public int getPostingsSize() {
+        return postings.length;
+    }
+
+    /**
+     * Finds the term equal to a word.
+     *
+     * @param word the word.
+     * @return the range of term numbers, of length 0 or 1.
+     */
+    private int[] exactRange(String word) {
+        int index = Arrays.binarySearch(terms, word);
+        return index < 0 ? new int[]{0, 0} : new int[]{index, index + 1};
+    }
+
+    /**
+     * Finds the terms starting with a prefix, which sort together.
+     *
+     * @param prefix the prefix.
+     * @return the range of term numbers, from inclusive to exclusive.
+     */
+    private int[] prefixRange(String prefix) {
+        int from = insertionPoint(prefix);
+        int to = from;
+        while (to < terms.length && terms[to].startsWith(prefix)) to++;
+        return new int[]{from, to};
+    }
+
+    private int insertionPoint(String word) {
+        int index = Arrays.binarySearch(terms, word);
+        return index < 0 ? -index - 1 : index;
+    }
+
+    /**
+     * Counts the postings of a range of terms (an overestimate of the items, for prefixes).
+     *
+     * @param range the range of term numbers.
+     * @return the number of postings.
+     */
+    private long estimate(int[] range) {
+        long count = 0;
+        for (int i = range[0]; i < range[1]; i++) count += documentFrequencies[i];
+        return count;
+    }
+
+    /**
+     * Decodes the items of a range of terms into one sorted list without repeats.
+     *
+     * @param range the range of term numbers.
+     * @return the positions of the items.
+     */
+    private int[] decode(int[] range) {
+        if (range[1] - range[0] == 1) return decode(range[0]);
+        long total = estimate(range);
+        if (total > identifiers.length / 32) {
+            // Many postings: mark them in a bit set, which also removes repeats
+            long[] bits = new long[(identifiers.length + 63) >>> 6];
+            for (int term = range[0]; term < range[1]; term++) {
+                for (int item : decode(term)) bits[item >>> 6] |= 1L << item;
+            }
+            int count = 0;
+            for (long word : bits) count += Long.bitCount(word);
+            int[] merged = new int[count];
+            int next = 0;
+            for (int i = 0; i < bits.length; i++) {
+                for (long word = bits[i]; word != 0; word &= word - 1) merged[next++] = (i << 6) + Long.numberOfTrailingZeros(word);
+            }
+            return merged;
+        }
+        int[] merged = new int[(int) total];
+        int size = 0;
+        for (int term = range[0]; term < range[1]; term++) {
+            int[] list = decode(term);
+            System.arraycopy(list, 0, merged, size, list.length);
+            size += list.length;
+        }
+        Arrays.sort(merged);
+        int unique = 0;
+        for (int i = 0; i < merged.length; i++) if (i == 0 || merged[i] != merged[i - 1]) merged[unique++] = merged[i];
+        return Arrays.copyOf(merged, unique);
+    }
+
+    /**
+     * Decodes the posting list of one term.
+     *
+     * @param term the term number.
+     * @return the positions of the items containing the term.
+     */
+    private int[] decode(int term) {
+        int[] list = new int[documentFrequencies[term]];
+        int position = postingOffsets[term];
+        int item = -1;
+        for (int i = 0; i < list.length; i++) {
+            int gap = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = postings[position++];
+                gap |= (b & 0x7F) << shift;
+                if (b >= 0) break;
+            }
+            list[i] = item += gap;
+        }
+        return list;
+    }
+
+    /**
+     * Keeps the items also in one term's posting list, decoding only the blocks of the list that can
+     * hold a candidate.
+     *
+     * @param matching the candidate items, sorted.
+     * @param term the term number.
+     * @return the candidates containing the term.
+     */
+    private int[] intersect(int[] matching, int term) {
+        int[] kept = new int[matching.length];
+        int size = 0;
+        int position = postingOffsets[term];
+        int end = postingOffsets[term + 1];
+        int skip = skipStarts[term];
+        int skipEnd = skipStarts[term + 1];
+        int item = -1;
+        for (int candidate : matching) {
+            // Every item before a block is at most the one recorded with it, so a block recorded with an
+            // item below the candidate is the earliest place the candidate can be
+            while (skip < skipEnd && skipItems[skip] < candidate) {
+                if (skipOffsets[skip] > position) {
+                    position = skipOffsets[skip];
+                    item = skipItems[skip];
+                }
+                skip++;
+            }
+            while (item < candidate && position < end) {
+                int gap = 0;
+                for (int shift = 0; ; shift += 7) {
+                    byte b = postings[position++];
+                    gap |= (b & 0x7F) << shift;
+                    if (b >= 0) break;
+                }
+                item += gap;
+            }
+            if (item == candidate) kept[size++] = candidate;
+            else if (item < candidate) break;
+        }
+        return Arrays.copyOf(kept, size);
+    }
+
+    /**
+     * Keeps the items in both sorted lists.
+     *
+     * @param a the first list.
+     * @param b the second list.
+     * @return the items in both.
+     */
+    private static int[] intersect(int[] a, int[] b) {
+        int[] kept = new int[Math.min(a.length, b.length)];
+        int size = 0;
+        for (int i = 0, j = 0; i < a.length && j < b.length; ) {
+            if (a[i] < b[j]) i++;
+            else if (a[i] > b[j]) j++;
+            else {
+                kept[size++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(kept, size);
+    }
+
+    /**
+     * Writes unsigned variable-length integers, seven bits per byte with the high bit set on all but
+     * the last byte.
+     */
+    private static final class VarIntWriter {
+        private byte[] bytes = new byte[1024];
+        private int size;
+
+        private void write(int value) {
+            if (size + 5 > bytes.length) bytes = Arrays.copyOf(bytes, bytes.length * 2);
+            while ((value & ~0x7F) != 0) {
+                bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Compares the ways of getting the item pictures as thumbnails, without the GUI: decoding the whole
+ * picture and scaling it with {@link Image#getScaledInstance} (which only scales when the image is
+ * first painted, so the benchmark paints it once), decoding it subsampled with a
+ * {@link ThumbnailLoader}, reading it back from a thumbnail cache directory, and warming an
+ * {@link ImageCache} with every picture in parallel.
+ */
+public class ThumbnailBenchmark {
+    /**
+     * Runs from the command line: {@code --thumbnail-benchmark [directory] [--runs=N] [--size=WxH]}.
+     * By default every picture in "images" is read three times over at the size the results window
+     * shows it.
+     *
+     * @param args the command-line arguments, after "--thumbnail-benchmark".
+     */
+    public static void main(String[] args) {
+        Path directory = Path.of("images");
+        int runs = 3;
+        int width = ResultInterface.PREVIEW_WIDTH;
+        int height = ResultInterface.PREVIEW_HEIGHT;
+        for (String arg : args) {
+            if (arg.startsWith("--runs=")) runs = Integer.parseInt(arg.substring("--runs=".length()));
+            else if (arg.startsWith("--size=")) {
+                String[] size = arg.substring("--size=".length()).split("x");
+                width = Integer.parseInt(size[0]);
+                height = Integer.parseInt(size[1]);
+            } else directory = Path.of(arg);
+        }
+        List<String> pictures;
+        try {
+            pictures = pictures(directory);
+        } catch (UncheckedIOException io) {
+            System.out.println("Pictures could not be listed. \nError message: " + io.getMessage());
+            return;
+        }
+        if (pictures.isEmpty()) {
+            System.out.println("No pictures in " + directory);
+            return;
+        }
+        int w = width;
+        int h = height;
+        System.out.printf("%d pictures at %dx%d, %d runs%n", pictures.size(), width, height, runs);
+        double scaled = time(pictures, runs, path -> paint(ImageIO.read(new File(path)).getScaledInstance(w, h, Image.SCALE_SMOOTH), w, h));
+        report("ImageIO.read + getScaledInstance", scaled, scaled);
+        report("ThumbnailLoader, subsampled", time(pictures, runs, path -> ThumbnailLoader.decode(new File(path), w, h)), scaled);
+
+        Path cacheDirectory = null;
+        try {
+            cacheDirectory = Files.createTempDirectory("thumbnails");
+            ThumbnailLoader cached = new ThumbnailLoader(cacheDirectory);
+            // Fill the cache first, so the runs measure reading it back
+            time(pictures, 1, path -> cached.load(path, w, h));
+            report("ThumbnailLoader, from disk cache", time(pictures, runs, path -> cached.load(path, w, h)), scaled);
+        } catch (IOException io) {
+            System.out.println("Thumbnail cache could not be created. \nError message: " + io.getMessage());
+        } finally {
+            delete(cacheDirectory);
+        }
+
+        long warmed = 0;
+        for (int run = 0; run < runs; run++) {
+            long start = System.nanoTime();
+            new ImageCache(pictures.size()).warm(pictures, width, height).join();
+            warmed += System.nanoTime() - start;
+        }
+        report("ImageCache.warm, " + Runtime.getRuntime().availableProcessors() + " threads", warmed / 1e6 / runs / pictures.size(), scaled);
+    }
+
+    /**
+     * Lists the item pictures, named by item identifier, in a directory.
+     *
+     * @param directory the directory.
+     * @return the paths of the pictures, sorted, written the way the windows ask the image cache for them
+     *         (e.g. "images/10895.png").
+     * @throws UncheckedIOException if the directory can't be listed.
+     */
+    public static List<String> pictures(Path directory) {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString()).filter(name -> name.matches("\\d+\\.png"))
+                    .map(name -> directory + "/" + name).sorted().toList();
+        } catch (IOException io) {
+            throw new UncheckedIOException(io);
+        }
+    }
+
+    /**
+     * Reads every picture a number of times.
+     *
+     * @param pictures the paths of the pictures.
+     * @param runs the number of times to read each.
+     * @param read reads one picture.
+     * @return the mean milliseconds per picture.
+     */
+    private static double time(List<String> pictures, int runs, Read read) {
+        long total = 0;
+        for (int run = 0; run < runs; run++) {
+            for (String path : pictures) {
+                long start = System.nanoTime();
+                try {
+                    read.read(path);
+                } catch (IOException io) {
+                    System.out.println(path + " could not be read. \nError message: " + io.getMessage());
+                }
+                total += System.nanoTime() - start;
+            }
+        }
+        return total / 1e6 / runs / pictures.size();
+    }
+
+    private static void report(String method, double millis, double baseline) {
+        System.out.printf("%-36s %8.2f ms/picture  %6.1fx%n", method, millis, baseline / millis);
+    }
+
+    /**
+     * Paints an image once, which is when a scaled instance does its scaling.
+     *
+     * @param image the image.
+     * @param width its width.
+     * @param height its height.
+     * @return the painted copy.
+     */
+    private static BufferedImage paint(Image image, int width, int height) {
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = target.createGraphics();
+        graphics.drawImage(image, 0, 0, null);
+        graphics.dispose();
+        return target;
+    }
+
+    private static void delete(Path directory) {
+        if (directory == null) return;
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) Files.deleteIfExists(file);
+        } catch (IOException io) {
+            System.out.println("Thumbnail cache could not be deleted. \nError message: " + io.getMessage());
+        }
+    }
+
+    /**
+     * Reads one picture in one of the ways being compared.
+     */
+    private interface Read {
+        Object read(String path) throws IOException;
+    }
+}
@@ -0,0 +1,167 @@
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+
+/**
+ * Reads pictures as thumbnails. The decoder skips the rows and columns a thumbnail has no room for,
+ * keeping about twice the pixels it needs so the scaling still has some to smooth over, and the result
+ * is scaled once into an image in the screen's own format, which paints without being converted or
+ * scaled again. Thumbnails can also be kept in a cache directory, so the next run reads a small file
+ * instead of the full-size picture; a cached thumbnail older than its picture is made again. Cached
+ * thumbnails are named by a hash of the picture's full path, so pictures with the same name in
+ * different directories don't share one.
+ */
+public class ThumbnailLoader {
+    private static final String CACHE_FORMAT = "png";
+    private final Path cacheDirectory;
+    private volatile boolean cacheFailed;
+
+    /**
+     * Creates a loader that doesn't keep thumbnails on disk.
+     */
+    public ThumbnailLoader() {
+        this(null);
+    }
+
+    /**
+     * Creates a loader.
+     *
+     * @param cacheDirectory the directory to keep thumbnails in, created on first use; null to keep none.
+     */
+    public ThumbnailLoader(Path cacheDirectory) {
+        this.cacheDirectory = cacheDirectory;
+    }
+
+    /**
+     * Loads a picture as a thumbnail, from the cache directory if it holds an up-to-date one. A
+     * thumbnail that can't be written to the cache is still returned; the first such failure is
+     * reported and the rest are not.
+     *
+     * @param path the path of the picture.
+     * @param width the width of the thumbnail.
+     * @param height the height of the thumbnail.
+     * @return the thumbnail.
+     * @throws IOException if the picture can't be read.
+     */
+    public BufferedImage load(String path, int width, int height) throws IOException {
+        File picture = new File(path);
+        if (cacheDirectory == null) return decode(picture, width, height);
+        Path cached = cacheDirectory.resolve(picture.getName() + "." + pathHash(picture) + "." + width + "x" + height + "." + CACHE_FORMAT);
+        long modified = picture.lastModified();
+        if (modified != 0 && Files.isRegularFile(cached) && Files.getLastModifiedTime(cached).toMillis() >= modified) {
+            BufferedImage thumbnail = ImageIO.read(cached.toFile());
+            if (thumbnail != null && thumbnail.getWidth() == width && thumbnail.getHeight() == height) return scale(thumbnail, width, height);
+        }
+        BufferedImage thumbnail = decode(picture, width, height);
+        Path temporary = null;
+        try {
+            // Written aside and moved into place, so another reader never sees half a file
+            Files.createDirectories(cacheDirectory);
+            temporary = Files.createTempFile(cacheDirectory, picture.getName(), ".tmp");
+            if (!ImageIO.write(thumbnail, CACHE_FORMAT, temporary.toFile())) throw new IOException("No " + CACHE_FORMAT + " writer for the thumbnail");
+            Files.move(temporary, cached, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException io) {
+            if (temporary != null) Files.deleteIfExists(temporary);
+            if (!cacheFailed) {
+                cacheFailed = true;
+                System.out.println("Thumbnails could not be cached. \nError message: " + io.getMessage());
+            }
+        }
+        return thumbnail;
+    }
+
+    /**
+     * Hashes the normalised full path of a picture, so however the path is written the picture gets
+     * the same cached thumbnail, and no other picture does.
+     *
+     * @param picture the picture file.
+     * @return the first 16 bytes of the SHA-256 of the path, in hex.
+     */
+    private static String pathHash(File picture) {
+        String path = picture.toPath().toAbsolutePath().normalize().toString();
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(path.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform has SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Decodes a picture as a thumbnail, without the cache.
+     *
+     * @param picture the picture file.
+     * @param width the width of the thumbnail.
+     * @param height the height of the thumbnail.
+     * @return the thumbnail.
+     * @throws IOException if the picture can't be read.
+     */
+    public static BufferedImage decode(File picture, int width, int height) throws IOException {
+        if (width <= 0 || height <= 0) throw new IllegalArgumentException("Thumbnail size must be positive");
+        if (!picture.canRead()) throw new IOException("Can't read " + picture);
+        try (ImageInputStream input = ImageIO.createImageInputStream(picture)) {
+            Iterator<ImageReader> readers = input == null ? null : ImageIO.getImageReaders(input);
+            if (readers == null || !readers.hasNext()) throw new IOException("No reader for " + picture);
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                // Every n-th pixel of every n-th row, for the largest n that leaves twice the pixels needed
+                int subsampling = Math.max(1, Math.min(reader.getWidth(0) / (2 * width), reader.getHeight(0) / (2 * height)));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return scale(reader.read(0, param), width, height);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Scales an image into a new image in the screen's format (or a plain RGB one, when there is no
+     * screen), halving it first while it is more than twice the size so no pixels are skipped.
+     *
+     * @param source the image.
+     * @param width the width to scale to.
+     * @param height the height to scale to.
+     * @return the scaled image.
+     */
+    private static BufferedImage scale(BufferedImage source, int width, int height) {
+        while (source.getWidth() > 2 * width && source.getHeight() > 2 * height) {
+            source = draw(source, source.getWidth() / 2, source.getHeight() / 2, source.getColorModel().getTransparency());
+        }
+        return draw(source, width, height, source.getColorModel().getTransparency());
+    }
+
+    private static BufferedImage draw(BufferedImage source, int width, int height, int transparency) {
+        BufferedImage target;
+        if (GraphicsEnvironment.isHeadless()) {
+            target = new BufferedImage(width, height, transparency == Transparency.OPAQUE ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB);
+        } else {
+            target = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration()
+                    .createCompatibleImage(width, height, transparency);
+        }
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+}